@@ -0,0 +1,57 @@
+package com.ermnvldmr.w.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latencies and outcomes of one request template. Latencies are kept whole, in microseconds,
+ * so percentiles are exact.
+ */
+public class EndpointStats {
+    private final String name;
+
+    private long[] latencies = new long[1024];
+    private int count = 0;
+    private long errors = 0;
+
+    public EndpointStats(String name) {
+        this.name = name;
+    }
+
+    public synchronized void record(long latencyMicros, boolean success) {
+        if (count == latencies.length) {
+            latencies = Arrays.copyOf(latencies, count * 2);
+        }
+        latencies[count++] = latencyMicros;
+        if (!success) {
+            ++errors;
+        }
+    }
+
+    public synchronized void reset() {
+        latencies = new long[1024];
+        count = 0;
+        errors = 0;
+    }
+
+    public synchronized Summary summarize(double seconds) {
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        return new Summary(name, count, errors, count / seconds,
+                percentile(sorted, 0.5), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                count == 0 ? 0 : sorted[count - 1]);
+    }
+
+    private static long percentile(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+    }
+
+    public record Summary(String name, long requests, long errors, double throughput,
+                          long p50Micros, long p99Micros, long p999Micros, long maxMicros) {
+        public double errorRate() {
+            return requests == 0 ? 0 : (double) errors / requests;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.ermnvldmr.w.loadtest;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Users, posts and discussions created before the run, referenced by request templates.
+ */
+public record Fixtures(List<String> jwts, List<Long> userIds, List<Long> postIds, List<Long> discussionIds) {
+    /**
+     * @return a post id skewed towards the newest posts, as real traffic is.
+     */
+    public long randomPostId() {
+        double skewed = Math.pow(ThreadLocalRandom.current().nextDouble(), 3);
+        return postIds.get(postIds.size() - 1 - (int) (skewed * postIds.size()));
+    }
+}
@@ -0,0 +1,25 @@
+package com.ermnvldmr.w.loadtest;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * MariaDB functions the server's native queries call that H2 lacks, registered on the
+ * server's H2 database with {@code CREATE ALIAS}. Loaded by the server, not by the harness.
+ */
+public class H2Functions {
+    public static String sha1(String value) {
+        if (value == null) {
+            return null;
+        }
+
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-1").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-1 is not available.", e);
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package com.ermnvldmr.w.loadtest;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Sends requests picked from a mix, either at a fixed arrival rate (open loop) or as fast as
+ * a fixed number of clients manage (closed loop, rate 0). At most {@code concurrency}
+ * requests are in flight.
+ * <p>
+ * In open loop mode latency is measured from the moment a request was due, not from when it
+ * was sent, so a stalled server is not hidden by the client backing off along with it.
+ */
+public class LoadRunner {
+    public static final String TOTAL = "TOTAL";
+
+    private final HttpClient client;
+    private final RequestMix mix;
+    private final Fixtures fixtures;
+    private final String baseUrl;
+    private final Duration timeout;
+
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final EndpointStats total = new EndpointStats(TOTAL);
+
+    public LoadRunner(HttpClient client, RequestMix mix, Fixtures fixtures, String baseUrl, Duration timeout) {
+        this.client = client;
+        this.mix = mix;
+        this.fixtures = fixtures;
+        this.baseUrl = baseUrl;
+        this.timeout = timeout;
+
+        for (String name : mix.getNames()) {
+            stats.put(name, new EndpointStats(name));
+        }
+    }
+
+    /**
+     * Runs the warmup, discards its results, then runs the measurement.
+     *
+     * @return per template summaries, followed by the {@link #TOTAL} one.
+     */
+    public List<EndpointStats.Summary> run(double rate, int concurrency, Duration warmup, Duration duration)
+            throws InterruptedException {
+        if (!warmup.isZero()) {
+            drive(rate, concurrency, warmup);
+            stats.values().forEach(EndpointStats::reset);
+            total.reset();
+        }
+
+        long started = System.nanoTime();
+        drive(rate, concurrency, duration);
+        double seconds = (System.nanoTime() - started) / 1e9;
+
+        List<EndpointStats.Summary> summaries = new ArrayList<>();
+        for (EndpointStats endpoint : stats.values()) {
+            summaries.add(endpoint.summarize(seconds));
+        }
+        summaries.add(total.summarize(seconds));
+        return summaries;
+    }
+
+    private void drive(double rate, int concurrency, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        Semaphore inFlight = new Semaphore(concurrency);
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            if (rate > 0) {
+                long interval = (long) (1e9 / rate);
+                for (long due = System.nanoTime(); due < deadline; due += interval) {
+                    long wait = due - System.nanoTime();
+                    if (wait > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+
+                    inFlight.acquire();
+                    long scheduled = due;
+                    executor.execute(() -> {
+                        try {
+                            send(scheduled);
+                        } finally {
+                            inFlight.release();
+                        }
+                    });
+                }
+            } else {
+                for (int i = 0; i < concurrency; ++i) {
+                    executor.execute(() -> {
+                        while (System.nanoTime() < deadline) {
+                            send(System.nanoTime());
+                        }
+                    });
+                }
+            }
+
+            executor.shutdown();
+            executor.awaitTermination(timeout.toMillis() + duration.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void send(long scheduled) {
+        RequestMix.Template template = mix.pick();
+        HttpRequest request = mix.render(template, baseUrl, fixtures, timeout);
+
+        boolean success;
+        try {
+            HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+            success = template.isSuccess(response.statusCode());
+        } catch (IOException e) {
+            success = false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        long latencyMicros = (System.nanoTime() - scheduled) / 1000;
+        stats.get(template.name()).record(latencyMicros, success);
+        total.record(latencyMicros, success);
+    }
+}
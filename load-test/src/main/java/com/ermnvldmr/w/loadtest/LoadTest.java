@@ -0,0 +1,165 @@
+package com.ermnvldmr.w.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+
+/**
+ * Starts {@code w-server} once per thread mode, seeds it, replays a request mix against it
+ * and reports latency percentiles, throughput and errors per endpoint. Exits with status 1
+ * when a threshold is exceeded, so it can gate a deploy.
+ * <p>
+ * Options, all {@code --name=value}:
+ * <ul>
+ *     <li>{@code mix}: request mix JSONL file, default {@code mixes/browse.jsonl}.</li>
+ *     <li>{@code threads}: comma separated {@code platform} and {@code virtual} server modes to compare, default {@code platform}.</li>
+ *     <li>{@code rate}: requests per second, 0 for a closed loop, default 200.</li>
+ *     <li>{@code concurrency}: requests in flight at most, default 64.</li>
+ *     <li>{@code warmup}, {@code duration}, {@code timeout}: in seconds, default 10, 30 and 10.</li>
+ *     <li>{@code users}, {@code posts}, {@code discussions}: fixtures to seed, default 20, 500 and 1000.</li>
+ *     <li>{@code server-jar}: default {@code target/w-server-0.0.1-SNAPSHOT.jar} of the server project.</li>
+ *     <li>{@code server-jvm-args}: space separated JVM options of the server.</li>
+ *     <li>{@code target}: base URL of an already running server to use instead of starting one.</li>
+ *     <li>{@code db-url}, {@code db-user}, {@code db-password}: a MariaDB to start the server on instead of H2.</li>
+ *     <li>{@code report}: JSON file to write the summaries to.</li>
+ *     <li>{@code max-error-rate}, {@code max-p99-ms}: thresholds checked against the total.</li>
+ * </ul>
+ */
+public class LoadTest {
+    private static final String SERVER_JAR = "w-server-0.0.1-SNAPSHOT.jar";
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        ObjectMapper objectMapper = new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT);
+
+        RequestMix mix = RequestMix.read(locate(options.getOrDefault("mix", "mixes/browse.jsonl"), "load-test"), objectMapper);
+        double rate = Double.parseDouble(options.getOrDefault("rate", "200"));
+        int concurrency = Integer.parseInt(options.getOrDefault("concurrency", "64"));
+        Duration warmup = Duration.ofSeconds(Long.parseLong(options.getOrDefault("warmup", "10")));
+        Duration duration = Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration", "30")));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "10")));
+        int users = Integer.parseInt(options.getOrDefault("users", "20"));
+        int posts = Integer.parseInt(options.getOrDefault("posts", "500"));
+        int discussions = Integer.parseInt(options.getOrDefault("discussions", "1000"));
+
+        Map<String, List<EndpointStats.Summary>> results = new LinkedHashMap<>();
+        try (HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build()) {
+            if (options.containsKey("target")) {
+                String baseUrl = options.get("target");
+                Fixtures fixtures = new Seeder(client, objectMapper, baseUrl).seed(users, posts, discussions);
+                results.put("target", new LoadRunner(client, mix, fixtures, baseUrl, timeout)
+                        .run(rate, concurrency, warmup, duration));
+            } else {
+                Path jar = locate(options.getOrDefault("server-jar", "target/" + SERVER_JAR), "..");
+                List<String> jvmArgs = options.containsKey("server-jvm-args")
+                        ? Arrays.asList(options.get("server-jvm-args").trim().split("\\s+"))
+                        : List.of();
+
+                for (String mode : options.getOrDefault("threads", "platform").split(",")) {
+                    Map<String, String> environment = new HashMap<>();
+                    environment.put("VIRTUAL_THREADS", String.valueOf(switch (mode) {
+                        case "platform" -> false;
+                        case "virtual" -> true;
+                        default -> throw new IllegalArgumentException("Unknown thread mode " + mode + ".");
+                    }));
+
+                    Path log = Files.createTempFile("w-load-test-server-" + mode + "-", ".log");
+                    System.out.println("Starting " + mode + " thread server, log in " + log);
+                    try (ServerProcess server = ServerProcess.start(jar, options.get("db-url"),
+                            options.get("db-user"), options.get("db-password"), environment, jvmArgs, log)) {
+                        server.awaitReady(client, Duration.ofMinutes(2));
+                        Fixtures fixtures = new Seeder(client, objectMapper, server.getBaseUrl())
+                                .seed(users, posts, discussions);
+                        System.out.println("Seeded, running " + (rate > 0 ? rate + " requests/s" : "closed loop")
+                                + " for " + duration.toSeconds() + "s after " + warmup.toSeconds() + "s of warmup");
+                        results.put(mode, new LoadRunner(client, mix, fixtures, server.getBaseUrl(), timeout)
+                                .run(rate, concurrency, warmup, duration));
+                    }
+                }
+            }
+        }
+
+        for (Map.Entry<String, List<EndpointStats.Summary>> result : results.entrySet()) {
+            print(System.out, result.getKey(), result.getValue());
+        }
+        if (options.containsKey("report")) {
+            objectMapper.writeValue(Paths.get(options.get("report")).toFile(), results);
+        }
+
+        if (!check(results, options)) {
+            System.exit(1);
+        }
+    }
+
+    private static boolean check(Map<String, List<EndpointStats.Summary>> results, Map<String, String> options) {
+        boolean passed = true;
+        for (Map.Entry<String, List<EndpointStats.Summary>> result : results.entrySet()) {
+            EndpointStats.Summary total = result.getValue().getLast();
+            if (options.containsKey("max-error-rate")
+                    && total.errorRate() > Double.parseDouble(options.get("max-error-rate"))) {
+                System.out.printf("FAILED %s: error rate %.2f%% over the threshold%n", result.getKey(), 100 * total.errorRate());
+                passed = false;
+            }
+            if (options.containsKey("max-p99-ms")
+                    && total.p99Micros() > Double.parseDouble(options.get("max-p99-ms")) * 1000) {
+                System.out.printf("FAILED %s: p99 of %.1f ms over the threshold%n", result.getKey(), total.p99Micros() / 1000.0);
+                passed = false;
+            }
+        }
+        return passed;
+    }
+
+    private static void print(PrintStream out, String mode, List<EndpointStats.Summary> summaries) {
+        out.println();
+        out.println("== " + mode + " ==");
+        out.printf("%-24s %9s %8s %9s %10s %10s %10s %10s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (EndpointStats.Summary summary : summaries) {
+            out.printf("%-24s %9d %7.2f%% %9.1f %10.2f %10.2f %10.2f %10.2f%n",
+                    summary.name(), summary.requests(), 100 * summary.errorRate(), summary.throughput(),
+                    summary.p50Micros() / 1000.0, summary.p99Micros() / 1000.0,
+                    summary.p999Micros() / 1000.0, summary.maxMicros() / 1000.0);
+        }
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --name=value, got " + arg + ".");
+            }
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return options;
+    }
+
+    /**
+     * Resolves the path against the working directory, or else against {@code fallbackDir},
+     * so the tool runs from the server project as well as from its own directory.
+     */
+    private static Path locate(String path, String fallbackDir) {
+        Path direct = Paths.get(path);
+        if (Files.exists(direct) || direct.isAbsolute()) {
+            return direct;
+        }
+        return Paths.get(fallbackDir).resolve(path);
+    }
+}
@@ -0,0 +1,31 @@
+package com.ermnvldmr.w.loadtest;
+
+import java.net.http.HttpRequest;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * {@code multipart/form-data} body of text fields, as {@code POST /api/posts} takes them.
+ */
+public record MultipartForm(String boundary, String body) {
+    public static MultipartForm of(Map<String, String> fields) {
+        String boundary = "loadtest-" + UUID.randomUUID();
+        StringBuilder body = new StringBuilder();
+        for (Map.Entry<String, String> field : fields.entrySet()) {
+            body.append("--").append(boundary).append("\r\n")
+                    .append("Content-Disposition: form-data; name=\"").append(field.getKey()).append("\"\r\n")
+                    .append("Content-Type: text/plain; charset=UTF-8\r\n\r\n")
+                    .append(field.getValue()).append("\r\n");
+        }
+        body.append("--").append(boundary).append("--\r\n");
+        return new MultipartForm(boundary, body.toString());
+    }
+
+    public String contentType() {
+        return "multipart/form-data; boundary=" + boundary;
+    }
+
+    public HttpRequest.BodyPublisher publisher() {
+        return HttpRequest.BodyPublishers.ofString(body);
+    }
+}
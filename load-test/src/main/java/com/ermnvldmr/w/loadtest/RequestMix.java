@@ -0,0 +1,153 @@
+package com.ermnvldmr.w.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Weighted set of request templates read from a JSONL file, one request per line:
+ * <pre>
+ * {"name": "vote", "method": "POST", "path": "/api/votes/post/{postId}?jwt={jwt}&amp;upvote={bool}", "weight": 8}
+ * {"name": "discuss", "method": "POST", "path": "/api/discussions/post/{postId}?jwt={jwt}", "body": {"text": "..."}}
+ * {"name": "write", "method": "POST", "path": "/api/posts?jwt={jwt}", "form": {"title": "Post {n}", "text": "..."}}
+ * </pre>
+ * {@code body} is sent as JSON, the text fields of {@code form} as {@code multipart/form-data}.
+ * {@code weight} defaults to 1 and {@code expect} to any 2xx or 3xx status. Placeholders are
+ * filled from the seeded fixtures: {@code {jwt}}, {@code {userId}}, {@code {postId}},
+ * {@code {postIds}} (20 comma separated), {@code {discussionId}}, {@code {bool}} and
+ * {@code {n}} (a sequence number). Recorded requests without placeholders replay as they are.
+ */
+public class RequestMix {
+    private static final Pattern PLACEHOLDER = Pattern.compile("\\{(\\w+)}");
+    private static final int BATCH_IDS = 20;
+
+    private final List<Template> templates;
+    private final int totalWeight;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private RequestMix(List<Template> templates) {
+        this.templates = templates;
+        this.totalWeight = templates.stream().mapToInt(Template::weight).sum();
+    }
+
+    public static RequestMix read(Path file, ObjectMapper objectMapper) throws IOException {
+        List<Template> templates = new ArrayList<>();
+        int lineNumber = 0;
+        for (String line : Files.readAllLines(file)) {
+            ++lineNumber;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+
+            JsonNode node = objectMapper.readTree(line);
+            String path = node.path("path").asText(null);
+            if (path == null) {
+                throw new IOException(file + ":" + lineNumber + ": request without a path.");
+            }
+
+            Set<Integer> expected = new HashSet<>();
+            node.path("expect").forEach(status -> expected.add(status.asInt()));
+
+            templates.add(new Template(
+                    node.path("name").asText(node.path("method").asText("GET") + " " + path),
+                    node.path("method").asText("GET"),
+                    path,
+                    node.hasNonNull("body") ? objectMapper.writeValueAsString(node.get("body")) : null,
+                    formOf(node.get("form")),
+                    Math.max(0, node.path("weight").asInt(1)),
+                    expected));
+        }
+
+        if (templates.stream().mapToInt(Template::weight).sum() == 0) {
+            throw new IOException(file + " has no requests.");
+        }
+        return new RequestMix(templates);
+    }
+
+    public List<String> getNames() {
+        return templates.stream().map(Template::name).distinct().toList();
+    }
+
+    public Template pick() {
+        int target = ThreadLocalRandom.current().nextInt(totalWeight);
+        for (Template template : templates) {
+            target -= template.weight();
+            if (target < 0) {
+                return template;
+            }
+        }
+        throw new IllegalStateException();
+    }
+
+    public HttpRequest render(Template template, String baseUrl, Fixtures fixtures, Duration timeout) {
+        long n = sequence.incrementAndGet();
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(baseUrl + fill(template.path(), fixtures, n)))
+                .timeout(timeout);
+
+        if (template.form() != null) {
+            Map<String, String> fields = new LinkedHashMap<>();
+            template.form().forEach((name, value) -> fields.put(name, fill(value, fixtures, n)));
+            MultipartForm form = MultipartForm.of(fields);
+            builder.header("Content-Type", form.contentType())
+                    .method(template.method(), form.publisher());
+        } else if (template.body() == null) {
+            builder.method(template.method(), HttpRequest.BodyPublishers.noBody());
+        } else {
+            builder.header("Content-Type", "application/json")
+                    .method(template.method(), HttpRequest.BodyPublishers.ofString(fill(template.body(), fixtures, n)));
+        }
+        return builder.build();
+    }
+
+    private static Map<String, String> formOf(JsonNode node) {
+        if (node == null || node.isNull()) {
+            return null;
+        }
+        Map<String, String> form = new LinkedHashMap<>();
+        node.fields().forEachRemaining(field -> form.put(field.getKey(), field.getValue().asText()));
+        return form;
+    }
+
+    private static String fill(String text, Fixtures fixtures, long n) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        Matcher matcher = PLACEHOLDER.matcher(text);
+        return matcher.replaceAll(match -> Matcher.quoteReplacement(switch (match.group(1)) {
+            case "jwt" -> fixtures.jwts().get(random.nextInt(fixtures.jwts().size()));
+            case "userId" -> String.valueOf(fixtures.userIds().get(random.nextInt(fixtures.userIds().size())));
+            case "postId" -> String.valueOf(fixtures.randomPostId());
+            case "postIds" -> random.ints(BATCH_IDS, 0, fixtures.postIds().size())
+                    .mapToObj(i -> String.valueOf(fixtures.postIds().get(i)))
+                    .collect(Collectors.joining(","));
+            case "discussionId" -> fixtures.discussionIds().isEmpty()
+                    ? "0"
+                    : String.valueOf(fixtures.discussionIds().get(random.nextInt(fixtures.discussionIds().size())));
+            case "bool" -> String.valueOf(random.nextBoolean());
+            case "n" -> String.valueOf(n);
+            default -> match.group();
+        }));
+    }
+
+    public record Template(String name, String method, String path, String body, Map<String, String> form,
+                           int weight, Set<Integer> expected) {
+        public boolean isSuccess(int status) {
+            return expected.isEmpty() ? status >= 200 && status < 400 : expected.contains(status);
+        }
+    }
+}
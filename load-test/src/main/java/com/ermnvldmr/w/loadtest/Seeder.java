@@ -0,0 +1,121 @@
+package com.ermnvldmr.w.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Creates the users, posts and discussions a run works on through the public API, so the
+ * same seeding works against an embedded and a real database.
+ */
+public class Seeder {
+    private final HttpClient client;
+    private final ObjectMapper objectMapper;
+    private final String baseUrl;
+
+    public Seeder(HttpClient client, ObjectMapper objectMapper, String baseUrl) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+    }
+
+    public Fixtures seed(int users, int posts, int discussions) throws IOException, InterruptedException {
+        List<String> jwts = new ArrayList<>(users);
+        List<Long> userIds = new ArrayList<>(users);
+        for (int i = 0; i < users; ++i) {
+            String login = "loadtest" + letters(i);
+            String password = "password-" + i;
+
+            // Already there when seeding a persistent database a second time
+            HttpResponse<String> registered = post("/api/users/register",
+                    Map.of("name", "Load Test " + i, "login", login, "password", password));
+            if (registered.statusCode() != 201 && registered.statusCode() != 400) {
+                throw unexpected("register", registered);
+            }
+
+            HttpResponse<String> entered = post("/api/users/enter", Map.of("login", login, "password", password));
+            if (entered.statusCode() != 200) {
+                throw unexpected("enter", entered);
+            }
+            String jwt = entered.body();
+            jwts.add(jwt);
+
+            HttpResponse<String> user = get("/api/users/jwt?jwt=" + jwt);
+            if (user.statusCode() != 200) {
+                throw unexpected("find user", user);
+            }
+            userIds.add(objectMapper.readTree(user.body()).path("id").asLong());
+        }
+
+        List<Long> postIds = new ArrayList<>(posts);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < posts; ++i) {
+            String text = "Seeded post " + i + ". " + "Lorem ipsum dolor sit amet. ".repeat(1 + random.nextInt(40));
+            HttpResponse<String> written = postForm("/api/posts?jwt=" + jwts.get(random.nextInt(users)),
+                    Map.of("title", "Seeded post " + i, "text", text));
+            if (written.statusCode() != 201) {
+                throw unexpected("write post", written);
+            }
+            postIds.add(objectMapper.readTree(written.body()).path("id").asLong());
+        }
+
+        List<Long> discussionIds = new ArrayList<>(discussions);
+        for (int i = 0; i < discussions; ++i) {
+            long postId = postIds.get(random.nextInt(posts));
+            HttpResponse<String> written = post("/api/discussions/post/" + postId + "?jwt=" + jwts.get(random.nextInt(users)),
+                    Map.of("text", "Seeded discussion " + i));
+            if (written.statusCode() != 201) {
+                throw unexpected("write discussion", written);
+            }
+            discussionIds.add(objectMapper.readTree(written.body()).path("id").asLong());
+        }
+
+        return new Fixtures(List.copyOf(jwts), List.copyOf(userIds), List.copyOf(postIds), List.copyOf(discussionIds));
+    }
+
+    private HttpResponse<String> get(String path) throws IOException, InterruptedException {
+        return client.send(HttpRequest.newBuilder(URI.create(baseUrl + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> post(String path, Object body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(objectMapper.writeValueAsString(body)))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpResponse<String> postForm(String path, Map<String, String> fields) throws IOException, InterruptedException {
+        MultipartForm form = MultipartForm.of(fields);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", form.contentType())
+                .POST(form.publisher())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static IOException unexpected(String action, HttpResponse<String> response) {
+        String body = response.body();
+        return new IOException("Seeding failed to " + action + ": " + response.statusCode() + " "
+                + (body.length() > 500 ? body.substring(0, 500) : body));
+    }
+
+    // Logins are letters only
+    private static String letters(int value) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.append((char) ('a' + value % 26));
+            value /= 26;
+        } while (value > 0);
+        return letters.toString();
+    }
+}
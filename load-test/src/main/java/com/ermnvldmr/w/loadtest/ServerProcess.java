@@ -0,0 +1,147 @@
+package com.ermnvldmr.w.loadtest;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * A {@code w-server} jar started in a child JVM on a free port, with an in-memory H2
+ * database in MariaDB mode put on its classpath through the Spring Boot
+ * {@code PropertiesLauncher}, and a temporary media directory.
+ */
+public class ServerProcess implements AutoCloseable {
+    private static final String LAUNCHER = "org.springframework.boot.loader.launch.PropertiesLauncher";
+    private static final String JWT_SECRET = "load-test";
+
+    private final Process process;
+    private final Path mediaDir;
+    private final String baseUrl;
+
+    private ServerProcess(Process process, Path mediaDir, String baseUrl) {
+        this.process = process;
+        this.mediaDir = mediaDir;
+        this.baseUrl = baseUrl;
+    }
+
+    /**
+     * @param databaseUrl JDBC URL of the database to use instead of the embedded one, or {@code null}.
+     * @param environment extra environment variables of the server, e.g. {@code VIRTUAL_THREADS}.
+     */
+    public static ServerProcess start(Path jar, String databaseUrl, String databaseUser, String databasePassword,
+                                      Map<String, String> environment, List<String> jvmArgs, Path log) throws IOException {
+        if (!Files.isRegularFile(jar)) {
+            throw new IOException("Server jar " + jar + " not found, build it with `mvn package` first.");
+        }
+
+        int port = freePort();
+        Path mediaDir = Files.createTempDirectory("w-load-test-media-");
+
+        List<String> command = new ArrayList<>();
+        command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmArgs);
+        command.add("-Dloader.path=" + codeSource(org.h2.Driver.class) + "," + codeSource(H2Functions.class));
+        command.add("-cp");
+        command.add(jar.toString());
+        command.add(LAUNCHER);
+        command.add("--server.port=" + port);
+        command.add("--management.server.port=0");
+        command.add("--spring.jpa.properties.hibernate.show_sql=false");
+        command.add("--spring.jpa.properties.hibernate.format_sql=false");
+        command.add("--spring.jpa.properties.hibernate.use_sql_comments=false");
+
+        ProcessBuilder builder = new ProcessBuilder(command)
+                .redirectErrorStream(true)
+                .redirectOutput(log.toFile());
+        Map<String, String> env = builder.environment();
+        env.put("MYSQL_URL", databaseUrl != null ? databaseUrl : embeddedDatabaseUrl());
+        env.put("MYSQL_USER", databaseUrl != null ? databaseUser : "sa");
+        env.put("MYSQL_PASSWORD", databaseUrl != null ? databasePassword : "");
+        env.put("SHA_SALT", "load-test");
+        env.put("JWT_SECRET", JWT_SECRET);
+        env.put("MEDIA_DIR", mediaDir.toString());
+        env.put("PATH_PREFIX", "");
+        env.putAll(environment);
+
+        return new ServerProcess(builder.start(), mediaDir, "http://127.0.0.1:" + port);
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * Polls the post feed until it answers.
+     */
+    public void awaitReady(HttpClient client, Duration timeout) throws IOException, InterruptedException {
+        Instant deadline = Instant.now().plus(timeout);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/api/posts?limit=1"))
+                .timeout(Duration.ofSeconds(5))
+                .build();
+
+        while (Instant.now().isBefore(deadline)) {
+            if (!process.isAlive()) {
+                throw new IOException("Server exited with code " + process.exitValue() + " during startup.");
+            }
+
+            try {
+                if (client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200) {
+                    return;
+                }
+            } catch (IOException e) {
+                // Not listening yet
+            }
+            Thread.sleep(500);
+        }
+        throw new IOException("Server did not get ready within " + timeout + ".");
+    }
+
+    @Override
+    public void close() throws IOException, InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly();
+        }
+
+        try (Stream<Path> files = Files.walk(mediaDir)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+
+    private static String embeddedDatabaseUrl() {
+        return "jdbc:h2:mem:w-" + UUID.randomUUID()
+                + ";MODE=MariaDB;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1"
+                + ";INIT=CREATE ALIAS IF NOT EXISTS SHA1 FOR '" + H2Functions.class.getName() + ".sha1'";
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static String codeSource(Class<?> type) {
+        try {
+            return Paths.get(type.getProtectionDomain().getCodeSource().getLocation().toURI()).toString();
+        } catch (URISyntaxException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
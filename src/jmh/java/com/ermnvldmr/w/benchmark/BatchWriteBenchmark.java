@@ -0,0 +1,138 @@
+package com.ermnvldmr.w.benchmark;
+
+import com.ermnvldmr.w.domain.Discussion;
+import com.ermnvldmr.w.domain.Post;
+import com.ermnvldmr.w.domain.User;
+import com.ermnvldmr.w.repository.DiscussionRepository;
+import com.ermnvldmr.w.repository.PostRepository;
+import com.ermnvldmr.w.repository.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes of many rows in one transaction, with and without JDBC batching: Hibernate inserts
+ * of sequence keyed discussions under {@code hibernate.jdbc.batch_size}, and the hot score
+ * checkpoint's updates as single statements against {@code JdbcTemplate.batchUpdate}.
+ * <p>
+ * Server side statement caching is a MariaDB driver setting, H2 has nothing to compare it
+ * with. Run against MariaDB with and without {@code -Dspring.profiles.active=prod} for that.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BatchWriteBenchmark {
+    private static final int POSTS = 1000;
+
+    @Param({"100"})
+    public int rows;
+
+    @Param({"1", "50"})
+    public int jdbcBatchSize;
+
+    private BenchmarkContext context;
+    private JdbcTemplate jdbcTemplate;
+    private TransactionTemplate transactionTemplate;
+    private DiscussionRepository discussionRepository;
+
+    private User user;
+    private List<Post> posts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new BenchmarkContext(
+                "spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize,
+                "spring.jpa.properties.hibernate.order_inserts=true");
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+        transactionTemplate = context.getBean(TransactionTemplate.class);
+        discussionRepository = context.getBean(DiscussionRepository.class);
+
+        user = new User();
+        user.setName("Benchmark User");
+        user.setLogin("bench");
+        user.setAdmin(false);
+        context.getBean(UserRepository.class).save(user);
+
+        PostRepository postRepository = context.getBean(PostRepository.class);
+        posts = new ArrayList<>(POSTS);
+        for (int i = 0; i < POSTS; ++i) {
+            Post post = new Post();
+            post.setTitle("Post " + i);
+            post.setText("Text " + i);
+            post.setUser(user);
+            posts.add(postRepository.save(post));
+        }
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearDiscussions() {
+        jdbcTemplate.update("DELETE FROM discussion");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public int insertDiscussions() {
+        return transactionTemplate.execute(status -> {
+            List<Discussion> discussions = new ArrayList<>(rows);
+            for (int i = 0; i < rows; ++i) {
+                Discussion discussion = new Discussion();
+                discussion.setUser(user);
+                discussion.setPost(posts.get(i % POSTS));
+                discussion.setText("Discussion " + i);
+                discussions.add(discussion);
+            }
+            return discussionRepository.saveAll(discussions).size();
+        });
+    }
+
+    @Benchmark
+    public int updateHotScoresOneByOne() {
+        return transactionTemplate.execute(status -> {
+            int updated = 0;
+            for (Object[] args : hotScores()) {
+                updated += jdbcTemplate.update("UPDATE post SET hot_score=? WHERE id=?", args);
+            }
+            return updated;
+        });
+    }
+
+    @Benchmark
+    public int updateHotScoresBatched() {
+        return transactionTemplate.execute(status ->
+                jdbcTemplate.batchUpdate("UPDATE post SET hot_score=? WHERE id=?", hotScores()).length);
+    }
+
+    private List<Object[]> hotScores() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<Object[]> batch = new ArrayList<>(rows);
+        for (int i = 0; i < rows; ++i) {
+            batch.add(new Object[]{random.nextDouble(), posts.get(random.nextInt(POSTS)).getId()});
+        }
+        return batch;
+    }
+}
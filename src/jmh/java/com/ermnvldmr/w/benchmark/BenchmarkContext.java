@@ -0,0 +1,80 @@
+package com.ermnvldmr.w.benchmark;
+
+import com.ermnvldmr.w.WApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The application without its web server, on an in-memory H2 database in MariaDB mode and
+ * a temporary media directory, so that service benchmarks run on a plain machine.
+ * <p>
+ * Pass {@code -DMYSQL_URL=jdbc:mariadb://...} (plus {@code MYSQL_USER}, {@code MYSQL_PASSWORD}
+ * and optionally {@code -Dspring.profiles.active=prod}) through {@code -jvmArgsAppend} to
+ * benchmark against a real MariaDB instead.
+ */
+public class BenchmarkContext implements AutoCloseable {
+    private final Path mediaDir;
+    private final ConfigurableApplicationContext context;
+
+    public BenchmarkContext(String... properties) {
+        try {
+            this.mediaDir = Files.createTempDirectory("w-benchmark-media-");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        // Command line arguments, so they win over application.properties
+        List<String> args = new ArrayList<>(List.of(
+                "--spring.jpa.properties.hibernate.show_sql=false",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.jpa.properties.hibernate.use_sql_comments=false",
+                "--config.counterReconciliationDelay=P1D",
+                "--config.mediaGcDelay=P1D",
+                "--logging.level.root=WARN"));
+        for (String property : properties) {
+            args.add("--" + property);
+        }
+
+        // Default properties, so -D system properties win over them
+        Map<String, Object> defaults = Map.of(
+                "MYSQL_URL", "jdbc:h2:mem:benchmark-" + UUID.randomUUID()
+                        + ";MODE=MariaDB;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=USER,VALUE;DB_CLOSE_DELAY=-1;DB_CLOSE_ON_EXIT=FALSE",
+                "MYSQL_USER", "sa",
+                "MYSQL_PASSWORD", "",
+                "SHA_SALT", "benchmark",
+                "JWT_SECRET", "benchmark",
+                "MEDIA_DIR", mediaDir.toString(),
+                "PATH_PREFIX", "");
+
+        this.context = new SpringApplicationBuilder(WApplication.class)
+                .web(WebApplicationType.NONE)
+                .properties(defaults)
+                .logStartupInfo(false)
+                .run(args.toArray(String[]::new));
+    }
+
+    public <T> T getBean(Class<T> type) {
+        return context.getBean(type);
+    }
+
+    public Path getMediaDir() {
+        return mediaDir;
+    }
+
+    @Override
+    public void close() throws IOException {
+        context.close();
+        FileSystemUtils.deleteRecursively(mediaDir);
+    }
+}
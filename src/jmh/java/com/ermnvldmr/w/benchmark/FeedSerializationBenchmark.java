@@ -0,0 +1,92 @@
+package com.ermnvldmr.w.benchmark;
+
+import com.ermnvldmr.w.dto.CursorPage;
+import com.ermnvldmr.w.dto.PostDto;
+import com.ermnvldmr.w.utils.Cursor;
+import com.ermnvldmr.w.utils.JsonStreams;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JSON serialization of feed pages with the object mapper setup Spring MVC uses, as a whole
+ * page and streamed element by element the way user post listings are written.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FeedSerializationBenchmark {
+    @Param({"20", "100"})
+    public int pageSize;
+
+    @Param({"200", "5000"})
+    public int textLength;
+
+    private ObjectMapper objectMapper;
+    private CursorPage<PostDto> page;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        objectMapper = Jackson2ObjectMapperBuilder.json().build();
+
+        String text = "Lorem ipsum dolor sit amet, \"consectetur\" adipiscing elit.\n".repeat(textLength / 50 + 1)
+                .substring(0, textLength);
+        long now = System.currentTimeMillis();
+
+        List<PostDto> posts = new ArrayList<>(pageSize + 1);
+        for (int i = 0; i <= pageSize; ++i) {
+            List<String> media = i % 3 == 0 ? List.of("%064x.jpg".formatted(i), "%064x.png".formatted(i + 1)) : List.of();
+            posts.add(new PostDto(1_000_000 - i, "Post title " + i, text, media,
+                    i % 50, "User " + i % 50, "login", false, new Date(now - 86_400_000L),
+                    i * 3L, i * 7L, i, i * 40L, new Date(now - i * 60_000L)));
+        }
+        page = CursorPage.of(posts, pageSize, post -> Cursor.ofTime(post.getCreationTime(), post.getId()));
+    }
+
+    @Benchmark
+    public byte[] page() throws IOException {
+        return objectMapper.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public long streamed() throws IOException {
+        CountingOutputStream out = new CountingOutputStream();
+        JsonStreams.<PostDto>array(objectMapper, action -> page.getItems().forEach(action)).writeTo(out);
+        return out.count;
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long count = 0;
+
+        @Override
+        public void write(int b) {
+            ++count;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            count += len;
+        }
+    }
+}
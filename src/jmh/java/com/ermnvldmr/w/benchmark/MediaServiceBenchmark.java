@@ -0,0 +1,147 @@
+package com.ermnvldmr.w.benchmark;
+
+import com.ermnvldmr.w.service.MediaService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.util.FileSystemUtils;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link MediaService#storeAll} and {@link MediaService#addReferences}, the media part of
+ * writing a post: hashing and copying each file into the store concurrently, then taking
+ * references. Duplicate uploads only hash and touch the stored file. The store is emptied after every iteration to bound disk use.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class MediaServiceBenchmark {
+    private static final int FILES_PER_POST = 4;
+
+    @Param({"65536", "4194304"})
+    public int fileSize;
+
+    @Param({"false", "true"})
+    public boolean duplicate;
+
+    private BenchmarkContext context;
+    private MediaService mediaService;
+    private JdbcTemplate jdbcTemplate;
+
+    private byte[] content;
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new BenchmarkContext("config.mediaMaxFileSize=16MB", "config.mediaMaxRequestSize=64MB");
+        mediaService = context.getBean(MediaService.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        content = new byte[fileSize];
+        ThreadLocalRandom.current().nextBytes(content);
+    }
+
+    @TearDown(Level.Iteration)
+    public void clearStore() throws IOException {
+        try (DirectoryStream<Path> shards = Files.newDirectoryStream(context.getMediaDir())) {
+            for (Path shard : shards) {
+                FileSystemUtils.deleteRecursively(shard);
+            }
+        }
+        jdbcTemplate.update("DELETE FROM media_object");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public List<String> saveAll() throws IOException {
+        List<MultipartFile> media = new ArrayList<>(FILES_PER_POST);
+        for (int i = 0; i < FILES_PER_POST; ++i) {
+            media.add(new BenchmarkMultipartFile(duplicate ? content : uniqueContent(), "image-" + i + ".jpg"));
+        }
+        List<String> keys = mediaService.storeAll(media);
+        mediaService.addReferences(keys, media);
+        return keys;
+    }
+
+    private byte[] uniqueContent() {
+        byte[] unique = content.clone();
+        ByteBuffer.wrap(unique).putLong(sequence.incrementAndGet());
+        return unique;
+    }
+
+    private record BenchmarkMultipartFile(byte[] content, String originalFilename) implements MultipartFile {
+        @Override
+        public String getName() {
+            return "media";
+        }
+
+        @Override
+        public String getOriginalFilename() {
+            return originalFilename;
+        }
+
+        @Override
+        public String getContentType() {
+            return "image/jpeg";
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return content.length == 0;
+        }
+
+        @Override
+        public long getSize() {
+            return content.length;
+        }
+
+        @Override
+        public byte[] getBytes() {
+            return content;
+        }
+
+        @Override
+        public InputStream getInputStream() {
+            return new ByteArrayInputStream(content);
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException {
+            Files.write(dest.toPath(), content);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.ermnvldmr.w.benchmark;
+
+import com.ermnvldmr.w.domain.User;
+import com.ermnvldmr.w.repository.UserRepository;
+import com.ermnvldmr.w.service.UserService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link UserService#findByJwt}: HMAC verification plus user lookup on a cache miss, a
+ * SHA-256 of the token and an LRU lookup on a hit. A zero cache TTL measures every call
+ * going to the verifier and the database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class UserServiceBenchmark {
+    private static final int USERS = 1000;
+
+    @Param({"PT5M", "PT0S"})
+    public String jwtCacheTtl;
+
+    private BenchmarkContext context;
+    private UserService userService;
+    private String[] jwts;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new BenchmarkContext("config.jwtCacheTtl=" + jwtCacheTtl);
+        userService = context.getBean(UserService.class);
+        UserRepository userRepository = context.getBean(UserRepository.class);
+
+        jwts = new String[USERS];
+        for (int i = 0; i < USERS; ++i) {
+            User user = new User();
+            user.setName("Benchmark User " + i);
+            user.setLogin("bench" + toLetters(i));
+            user.setAdmin(false);
+            userRepository.save(user);
+            jwts[i] = userService.createUserJwt(user);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        context.close();
+    }
+
+    @Benchmark
+    public User findByJwt() {
+        return userService.findByJwt(jwts[ThreadLocalRandom.current().nextInt(USERS)]);
+    }
+
+    // Logins are letters only
+    private static String toLetters(int value) {
+        StringBuilder letters = new StringBuilder();
+        do {
+            letters.append((char) ('a' + value % 26));
+            value /= 26;
+        } while (value > 0);
+        return letters.toString();
+    }
+}
@@ -0,0 +1,81 @@
+package com.ermnvldmr.w.benchmark;
+
+import com.ermnvldmr.w.config.PropertiesConfig;
+import com.ermnvldmr.w.service.InMemoryViewDedupStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The view dedup check behind {@code PostService.getAndIncrementViewCount}, hammered by
+ * many request threads at once. A small viewer population mostly repeats views, a large one
+ * mostly records new ones and keeps the stripes evicting at capacity.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ViewDedupBenchmark {
+    private static final int POSTS = 1000;
+
+    @Param({"1000", "10000000"})
+    public int viewers;
+
+    private InMemoryViewDedupStore store;
+    private String[] viewerIdentifiers;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        PropertiesConfig propertiesConfig = new PropertiesConfig();
+        propertiesConfig.setViewDedupWindow(Duration.ofMinutes(10));
+        propertiesConfig.setViewDedupMaxEntries(1_000_000);
+        store = new InMemoryViewDedupStore(propertiesConfig);
+
+        // Distinct identifiers are made on the fly past this, as real addresses are
+        viewerIdentifiers = new String[Math.min(viewers, 100_000)];
+        for (int i = 0; i < viewerIdentifiers.length; ++i) {
+            viewerIdentifiers[i] = viewerIdentifier(i);
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean singleThread() {
+        return tryRecordView();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public boolean contended() {
+        return tryRecordView();
+    }
+
+    private boolean tryRecordView() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int viewer = random.nextInt(viewers);
+        String viewerIdentifier = viewer < viewerIdentifiers.length
+                ? viewerIdentifiers[viewer]
+                : viewerIdentifier(viewer);
+        return store.tryRecordView(random.nextInt(POSTS), viewerIdentifier);
+    }
+
+    private static String viewerIdentifier(int viewer) {
+        return "10." + (viewer >>> 16 & 0xff) + "." + (viewer >>> 8 & 0xff) + "." + (viewer & 0xff);
+    }
+}
@@ -0,0 +1,66 @@
+package com.ermnvldmr.w.benchmark;
+
+import com.ermnvldmr.w.domain.Vote;
+import com.ermnvldmr.w.dto.PostDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Vote count of a post: summing its loaded vote collection, as {@code Post.getVoteCount}
+ * used to, against the difference of the denormalized upvote and downvote counters. Loading
+ * the collection from the database, which dominated the old way, is not even included.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VoteCountBenchmark {
+    @Param({"10", "1000", "100000"})
+    public int votes;
+
+    private List<Vote> voteList;
+    private PostDto post;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        voteList = new ArrayList<>(votes);
+        long upvotes = 0;
+        for (int i = 0; i < votes; ++i) {
+            Vote vote = new Vote();
+            vote.setUpvote(ThreadLocalRandom.current().nextInt(4) != 0);
+            voteList.add(vote);
+            upvotes += vote.isUpvote() ? 1 : 0;
+        }
+
+        post = new PostDto(1, "Title", "Text", List.of(), 1, "Name", "login", false, new Date(),
+                0, upvotes, votes - upvotes, 0, new Date());
+    }
+
+    @Benchmark
+    public long sumVoteCollection() {
+        return voteList.stream().mapToLong((vote) -> vote.isUpvote() ? 1 : -1).sum();
+    }
+
+    @Benchmark
+    public long counterColumns() {
+        return post.getVoteCount();
+    }
+}
@@ -1,13 +1,25 @@
 package com.ermnvldmr.w;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.boot.ApplicationArguments;
 import org.springframework.boot.ApplicationRunner;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Component;
 
+import java.sql.ResultSet;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Component
 @SuppressWarnings("unused")
 public class DatabaseInitializer implements ApplicationRunner {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseInitializer.class);
+
     private final JdbcTemplate jdbcTemplate;
 
     public DatabaseInitializer(JdbcTemplate jdbcTemplate) {
@@ -30,5 +42,43 @@ public class DatabaseInitializer implements ApplicationRunner {
             String sql = "ALTER TABLE `" + tableName + "` ADD `" + columnName + "` VARCHAR(64) NULL AFTER `login`;";
             jdbcTemplate.execute(sql);
         }
+
+        dropParentDiscussionUniqueKey();
+    }
+
+    /**
+     * Discussions used to map their parent as a one-to-one, for which the schema update created
+     * a unique key on {@code discussion.parent_discussion_id} that allows one reply per discussion only.
+     * The plain index on the column, created from the entity, keeps backing the foreign key.
+     */
+    private void dropParentDiscussionUniqueKey() {
+        List<String> uniqueKeys = jdbcTemplate.execute((ConnectionCallback<List<String>>) connection -> {
+            // Unique index name to its columns
+            Map<String, List<String>> columns = new HashMap<>();
+            try (ResultSet indexes = connection.getMetaData()
+                    .getIndexInfo(connection.getCatalog(), null, "discussion", true, false)) {
+                while (indexes.next()) {
+                    String name = indexes.getString("INDEX_NAME");
+                    if (name != null) {
+                        columns.computeIfAbsent(name, key -> new ArrayList<>()).add(indexes.getString("COLUMN_NAME"));
+                    }
+                }
+            }
+            return columns.entrySet().stream()
+                    .filter(index -> index.getValue().size() == 1
+                            && "parent_discussion_id".equalsIgnoreCase(index.getValue().getFirst()))
+                    .map(Map.Entry::getKey)
+                    .toList();
+        });
+
+        for (String name : uniqueKeys == null ? List.<String>of() : uniqueKeys) {
+            String sql = "ALTER TABLE `discussion` DROP INDEX `" + name + "`";
+            try {
+                jdbcTemplate.execute(sql);
+                logger.info("Dropped unique key {} on discussion.parent_discussion_id", name);
+            } catch (DataAccessException e) {
+                logger.warn("Failed to drop unique key {} on discussion.parent_discussion_id, run {} by hand", name, sql, e);
+            }
+        }
     }
 }
\ No newline at end of file
@@ -4,9 +4,11 @@ import com.ermnvldmr.w.config.PropertiesConfig;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
 @EnableConfigurationProperties(PropertiesConfig.class)
+@EnableScheduling
 public class WApplication {
     public static void main(String[] args) {
         SpringApplication.run(com.ermnvldmr.w.WApplication.class, args);
@@ -0,0 +1,115 @@
+package com.ermnvldmr.w.config;
+
+import com.ermnvldmr.w.domain.User;
+import com.ermnvldmr.w.service.HotFeedService;
+import com.ermnvldmr.w.service.InMemoryViewDedupStore;
+import com.ermnvldmr.w.service.MediaGarbageCollector;
+import com.ermnvldmr.w.service.MediaVariantService;
+import com.ermnvldmr.w.service.UserService;
+import com.ermnvldmr.w.service.ViewCounter;
+import com.ermnvldmr.w.service.ViewDedupStore;
+import com.ermnvldmr.w.service.VirtualThreadPinningMonitor;
+import com.ermnvldmr.w.service.VoteQueue;
+import com.ermnvldmr.w.utils.ExpiringCache;
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Application meters, scraped from {@code /actuator/prometheus} on the management port
+ * next to the HTTP server, Hikari pool, Hibernate and JVM meters Spring Boot registers.
+ * Tags only take values from small fixed sets, never ids, users or paths.
+ */
+@Configuration
+public class MetricsConfig {
+    // Lets @Timed on the services time every public method, tagged by class and method
+    @Bean
+    public TimedAspect timedAspect(MeterRegistry meterRegistry) {
+        return new TimedAspect(meterRegistry);
+    }
+
+    @Bean
+    public MeterBinder applicationMetrics(ViewCounter viewCounter,
+                                          ViewDedupStore viewDedupStore,
+                                          UserService userService,
+                                          HotFeedService hotFeedService,
+                                          MediaVariantService mediaVariantService,
+                                          MediaGarbageCollector mediaGarbageCollector,
+                                          ObjectProvider<VoteQueue> voteQueue,
+                                          ObjectProvider<VirtualThreadPinningMonitor> pinningMonitor) {
+        return registry -> {
+            Gauge.builder("w.views.pending", viewCounter, ViewCounter::getPendingViews)
+                    .description("Post views counted but not flushed to the database yet")
+                    .register(registry);
+            Gauge.builder("w.views.dedup.entries", viewDedupStore, ViewDedupStore::getSize)
+                    .description("(post, viewer) pairs remembered by the view dedup store, as of the last purge for the database store")
+                    .register(registry);
+            if (viewDedupStore instanceof InMemoryViewDedupStore inMemory) {
+                FunctionCounter.builder("w.views.dedup.evictions", inMemory, InMemoryViewDedupStore::getExpiredEvictions)
+                        .tag("cause", "expired")
+                        .register(registry);
+                FunctionCounter.builder("w.views.dedup.evictions", inMemory, InMemoryViewDedupStore::getCapacityEvictions)
+                        .tag("cause", "capacity")
+                        .register(registry);
+            }
+
+            ExpiringCache<String, User> jwtCache = userService.getJwtCache();
+            FunctionCounter.builder("w.jwt.cache.requests", jwtCache, ExpiringCache::getHits)
+                    .tag("result", "hit")
+                    .register(registry);
+            FunctionCounter.builder("w.jwt.cache.requests", jwtCache, ExpiringCache::getMisses)
+                    .tag("result", "miss")
+                    .register(registry);
+            FunctionCounter.builder("w.jwt.cache.evictions", jwtCache, ExpiringCache::getEvictions)
+                    .register(registry);
+            Gauge.builder("w.jwt.cache.size", jwtCache, ExpiringCache::size)
+                    .register(registry);
+
+            Gauge.builder("w.hot.feed.size", hotFeedService, HotFeedService::size)
+                    .description("Posts ranked in memory by the hot feed")
+                    .register(registry);
+
+            Gauge.builder("w.media.variants.queued", mediaVariantService, MediaVariantService::getQueuedTasks)
+                    .register(registry);
+            FunctionCounter.builder("w.media.variants.rejected", mediaVariantService, MediaVariantService::getRejectedTasks)
+                    .description("Images left without variants because the queue was full")
+                    .register(registry);
+            FunctionCounter.builder("w.media.variants.generated", mediaVariantService, MediaVariantService::getGeneratedVariants)
+                    .register(registry);
+
+            FunctionCounter.builder("w.media.gc.orphaned.files", mediaGarbageCollector, MediaGarbageCollector::getOrphanedFiles)
+                    .register(registry);
+            FunctionCounter.builder("w.media.gc.deleted.files", mediaGarbageCollector, MediaGarbageCollector::getDeletedFiles)
+                    .register(registry);
+            FunctionCounter.builder("w.media.gc.reclaimed", mediaGarbageCollector, MediaGarbageCollector::getReclaimedBytes)
+                    .baseUnit("bytes")
+                    .register(registry);
+
+            voteQueue.ifAvailable(queue -> {
+                Gauge.builder("w.votes.queue.pending", queue, VoteQueue::getPendingVotes)
+                        .register(registry);
+                FunctionCounter.builder("w.votes.queue.queued", queue, VoteQueue::getQueuedVotes)
+                        .register(registry);
+                FunctionCounter.builder("w.votes.queue.coalesced", queue, VoteQueue::getCoalescedVotes)
+                        .register(registry);
+                FunctionCounter.builder("w.votes.queue.rejected", queue, VoteQueue::getRejectedVotes)
+                        .register(registry);
+                FunctionCounter.builder("w.votes.queue.flushed", queue, VoteQueue::getFlushedVotes)
+                        .register(registry);
+                FunctionCounter.builder("w.votes.queue.dropped", queue, VoteQueue::getDroppedVotes)
+                        .description("Queued votes given up on, of deleted users or on deleted targets")
+                        .register(registry);
+            });
+
+            pinningMonitor.ifAvailable(monitor ->
+                    FunctionCounter.builder("w.virtual.threads.pinned", monitor, VirtualThreadPinningMonitor::getPinnedEvents)
+                            .description("Virtual threads pinned to their carrier longer than the threshold")
+                            .register(registry));
+        };
+    }
+}
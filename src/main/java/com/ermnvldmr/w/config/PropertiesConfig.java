@@ -2,6 +2,10 @@ package com.ermnvldmr.w.config;
 
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 @ConfigurationProperties(prefix = "config")
@@ -10,6 +14,27 @@ public class PropertiesConfig {
     private String mediaDir;
     private String jwtSecret;
     private String shaSalt;
+    private Duration viewDedupWindow = Duration.ofMinutes(10);
+    private int viewDedupMaxEntries = 1_000_000;
+    private Duration jwtCacheTtl = Duration.ofMinutes(5);
+    private int jwtCacheMaxEntries = 10_000;
+    private DataSize mediaMaxFileSize = DataSize.ofMegabytes(20);
+    private DataSize mediaMaxRequestSize = DataSize.ofMegabytes(100);
+    private int mediaUploadThreads = 4;
+    private List<Integer> mediaVariantWidths = List.of(320, 1080);
+    private int mediaVariantThreads = 2;
+    private int mediaVariantQueueCapacity = 1000;
+    private Duration mediaGcGracePeriod = Duration.ofDays(1);
+    private int mediaGcBatchSize = 1000;
+    private boolean mediaGcDryRun = false;
+    private Duration mediaGcLegacyInterval = Duration.ofHours(6);
+    private Duration hotFeedWindow = Duration.ofDays(7);
+    private int hotFeedMaxEntries = 10_000;
+    private int voteQueueCapacity = 100_000;
+    private String voteLogFile = "vote-queue.log";
+    private Duration virtualThreadPinningThreshold = Duration.ofMillis(20);
+    private int queryBudget = 20;
+    private Duration slowRequestThreshold = Duration.ofMillis(500);
 
     public String getMediaDir() {
         return mediaDir;
@@ -34,4 +59,172 @@ public class PropertiesConfig {
     public void setShaSalt(String shaSalt) {
         this.shaSalt = shaSalt;
     }
-}
\ No newline at end of file
+
+    public Duration getViewDedupWindow() {
+        return viewDedupWindow;
+    }
+
+    public void setViewDedupWindow(Duration viewDedupWindow) {
+        this.viewDedupWindow = viewDedupWindow;
+    }
+
+    public int getViewDedupMaxEntries() {
+        return viewDedupMaxEntries;
+    }
+
+    public void setViewDedupMaxEntries(int viewDedupMaxEntries) {
+        this.viewDedupMaxEntries = viewDedupMaxEntries;
+    }
+
+    public Duration getJwtCacheTtl() {
+        return jwtCacheTtl;
+    }
+
+    public void setJwtCacheTtl(Duration jwtCacheTtl) {
+        this.jwtCacheTtl = jwtCacheTtl;
+    }
+
+    public int getJwtCacheMaxEntries() {
+        return jwtCacheMaxEntries;
+    }
+
+    public void setJwtCacheMaxEntries(int jwtCacheMaxEntries) {
+        this.jwtCacheMaxEntries = jwtCacheMaxEntries;
+    }
+
+    public DataSize getMediaMaxFileSize() {
+        return mediaMaxFileSize;
+    }
+
+    public void setMediaMaxFileSize(DataSize mediaMaxFileSize) {
+        this.mediaMaxFileSize = mediaMaxFileSize;
+    }
+
+    public DataSize getMediaMaxRequestSize() {
+        return mediaMaxRequestSize;
+    }
+
+    public void setMediaMaxRequestSize(DataSize mediaMaxRequestSize) {
+        this.mediaMaxRequestSize = mediaMaxRequestSize;
+    }
+
+    public int getMediaUploadThreads() {
+        return mediaUploadThreads;
+    }
+
+    public void setMediaUploadThreads(int mediaUploadThreads) {
+        this.mediaUploadThreads = mediaUploadThreads;
+    }
+
+    public List<Integer> getMediaVariantWidths() {
+        return mediaVariantWidths;
+    }
+
+    public void setMediaVariantWidths(List<Integer> mediaVariantWidths) {
+        this.mediaVariantWidths = mediaVariantWidths;
+    }
+
+    public int getMediaVariantThreads() {
+        return mediaVariantThreads;
+    }
+
+    public void setMediaVariantThreads(int mediaVariantThreads) {
+        this.mediaVariantThreads = mediaVariantThreads;
+    }
+
+    public int getMediaVariantQueueCapacity() {
+        return mediaVariantQueueCapacity;
+    }
+
+    public void setMediaVariantQueueCapacity(int mediaVariantQueueCapacity) {
+        this.mediaVariantQueueCapacity = mediaVariantQueueCapacity;
+    }
+
+    public Duration getMediaGcGracePeriod() {
+        return mediaGcGracePeriod;
+    }
+
+    public void setMediaGcGracePeriod(Duration mediaGcGracePeriod) {
+        this.mediaGcGracePeriod = mediaGcGracePeriod;
+    }
+
+    public int getMediaGcBatchSize() {
+        return mediaGcBatchSize;
+    }
+
+    public void setMediaGcBatchSize(int mediaGcBatchSize) {
+        this.mediaGcBatchSize = mediaGcBatchSize;
+    }
+
+    public boolean isMediaGcDryRun() {
+        return mediaGcDryRun;
+    }
+
+    public void setMediaGcDryRun(boolean mediaGcDryRun) {
+        this.mediaGcDryRun = mediaGcDryRun;
+    }
+
+    public Duration getMediaGcLegacyInterval() {
+        return mediaGcLegacyInterval;
+    }
+
+    public void setMediaGcLegacyInterval(Duration mediaGcLegacyInterval) {
+        this.mediaGcLegacyInterval = mediaGcLegacyInterval;
+    }
+
+    public Duration getHotFeedWindow() {
+        return hotFeedWindow;
+    }
+
+    public void setHotFeedWindow(Duration hotFeedWindow) {
+        this.hotFeedWindow = hotFeedWindow;
+    }
+
+    public int getHotFeedMaxEntries() {
+        return hotFeedMaxEntries;
+    }
+
+    public void setHotFeedMaxEntries(int hotFeedMaxEntries) {
+        this.hotFeedMaxEntries = hotFeedMaxEntries;
+    }
+
+    public int getVoteQueueCapacity() {
+        return voteQueueCapacity;
+    }
+
+    public void setVoteQueueCapacity(int voteQueueCapacity) {
+        this.voteQueueCapacity = voteQueueCapacity;
+    }
+
+    public String getVoteLogFile() {
+        return voteLogFile;
+    }
+
+    public void setVoteLogFile(String voteLogFile) {
+        this.voteLogFile = voteLogFile;
+    }
+
+    public Duration getVirtualThreadPinningThreshold() {
+        return virtualThreadPinningThreshold;
+    }
+
+    public void setVirtualThreadPinningThreshold(Duration virtualThreadPinningThreshold) {
+        this.virtualThreadPinningThreshold = virtualThreadPinningThreshold;
+    }
+
+    public int getQueryBudget() {
+        return queryBudget;
+    }
+
+    public void setQueryBudget(int queryBudget) {
+        this.queryBudget = queryBudget;
+    }
+
+    public Duration getSlowRequestThreshold() {
+        return slowRequestThreshold;
+    }
+
+    public void setSlowRequestThreshold(Duration slowRequestThreshold) {
+        this.slowRequestThreshold = slowRequestThreshold;
+    }
+}
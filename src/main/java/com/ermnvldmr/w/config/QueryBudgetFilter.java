@@ -0,0 +1,105 @@
+package com.ermnvldmr.w.config;
+
+import com.ermnvldmr.w.utils.QueryScope;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Runs every request in a {@link QueryScope} and logs the requests that execute more SQL
+ * statements than {@code config.queryBudget} or take longer than {@code config.slowRequestThreshold},
+ * together with their statements. A statement repeated once per row gives away an N+1 query.
+ */
+@Component
+public class QueryBudgetFilter extends OncePerRequestFilter {
+    private static final Logger logger = LoggerFactory.getLogger(QueryBudgetFilter.class);
+
+    private final PropertiesConfig propertiesConfig;
+
+    public QueryBudgetFilter(PropertiesConfig propertiesConfig) {
+        this.propertiesConfig = propertiesConfig;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return propertiesConfig.getQueryBudget() <= 0 && !isPositive(propertiesConfig.getSlowRequestThreshold());
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        long start = System.nanoTime();
+        String name = request.getMethod() + " " + request.getRequestURI();
+        QueryScope scope = QueryScope.open();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            scope.close();
+            if (request.isAsyncStarted()) {
+                // Streamed bodies keep querying on another thread, see JsonStreams
+                AtomicBoolean checked = new AtomicBoolean();
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    // The container completes timed out and failed requests too, they are reported once
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        if (checked.compareAndSet(false, true)) {
+                            check(name, scope, start);
+                        }
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                        if (checked.compareAndSet(false, true)) {
+                            check(name + " (timed out)", scope, start);
+                        }
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                        if (checked.compareAndSet(false, true)) {
+                            check(name + " (failed)", scope, start);
+                        }
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                        // Listeners are dropped when async processing is started again
+                        event.getAsyncContext().addListener(this);
+                    }
+                });
+            } else {
+                check(name, scope, start);
+            }
+        }
+    }
+
+    private void check(String name, QueryScope scope, long start) {
+        Duration elapsed = Duration.ofNanos(System.nanoTime() - start);
+        int budget = propertiesConfig.getQueryBudget();
+        Duration threshold = propertiesConfig.getSlowRequestThreshold();
+
+        boolean overBudget = budget > 0 && scope.getStatementCount() > budget;
+        boolean slow = isPositive(threshold) && elapsed.compareTo(threshold) > 0;
+        if (overBudget || slow) {
+            logger.warn("{} took {} ms{}{}, {}", name, elapsed.toMillis(),
+                    overBudget ? ", over the budget of " + budget + " statements" : "",
+                    slow ? ", over the threshold of " + threshold.toMillis() + " ms" : "",
+                    scope.describe());
+        }
+    }
+
+    private static boolean isPositive(Duration duration) {
+        return duration != null && !duration.isZero() && !duration.isNegative();
+    }
+}
@@ -0,0 +1,60 @@
+package com.ermnvldmr.w.config;
+
+import com.ermnvldmr.w.utils.QueryScope;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.util.List;
+
+/**
+ * Wraps the data source so that every statement executed on it, by Hibernate, a
+ * {@code JdbcTemplate} or anything else, counts in the current {@link QueryScope}.
+ * Outside of a scope the listener returns right away.
+ */
+@Configuration
+public class QueryMonitoringConfig {
+    private static final String EXECUTION_START = QueryMonitoringConfig.class.getName() + ".start";
+
+    // Static, so the post processor does not initialize this configuration early
+    @Bean
+    public static BeanPostProcessor queryScopeDataSourceProxy() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (!(bean instanceof DataSource dataSource) || bean instanceof ProxyDataSource) {
+                    return bean;
+                }
+                return ProxyDataSourceBuilder.create(dataSource)
+                        .name(beanName)
+                        .listener(new QueryScopeListener())
+                        .build();
+            }
+        };
+    }
+
+    private static class QueryScopeListener implements QueryExecutionListener {
+        @Override
+        public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            if (QueryScope.current() != null) {
+                execInfo.addCustomValue(EXECUTION_START, System.nanoTime());
+            }
+        }
+
+        @Override
+        public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+            Long start = execInfo.getCustomValue(EXECUTION_START, Long.class);
+            if (start == null || queryInfoList.isEmpty()) {
+                return;
+            }
+            // A batch is one round trip, it counts once under its first statement
+            QueryScope.statementExecuted(queryInfoList.getFirst().getQuery(), System.nanoTime() - start);
+        }
+    }
+}
@@ -3,9 +3,12 @@ package com.ermnvldmr.w.controller;
 import com.ermnvldmr.w.domain.Discussion;
 import com.ermnvldmr.w.domain.Post;
 import com.ermnvldmr.w.domain.User;
+import com.ermnvldmr.w.dto.CursorPage;
+import com.ermnvldmr.w.dto.DiscussionNode;
 import com.ermnvldmr.w.service.DiscussionService;
 import com.ermnvldmr.w.service.UserService;
 import com.ermnvldmr.w.service.PostService;
+import com.ermnvldmr.w.utils.Cursor;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
@@ -55,6 +58,103 @@ public class DiscussionController {
         return ResponseEntity.ok(discussions);  // 200 OK
     }
 
+    @Operation(summary = "Find the discussion thread of a post",
+            description = "Retrieves the discussions of the given post as a tree, each discussion carrying its replies.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the thread"),
+            @ApiResponse(responseCode = "404", description = "Post not found")
+    })
+    @GetMapping(value = {"/discussions/post/{id}/tree"})
+    public ResponseEntity<List<DiscussionNode>> findDiscussionThread(
+            @Parameter(description = "ID of the post to find the thread for", required = true)
+            @PathVariable long id) {
+        Post post = postService.findById(id);
+        if (post == null) {
+            return ResponseEntity.notFound().build();  // 404 Not Found
+        }
+
+        List<DiscussionNode> thread = discussionService.findThreadByPostId(post.getId());
+        return ResponseEntity.ok(thread);  // 200 OK
+    }
+
+    @Operation(summary = "Find a page of the discussion thread of a post",
+            description = "Retrieves top-level discussions of the given post one page at a time, each with its first replies " +
+                    "a limited number of levels deep. Discussions with more replies than included carry a cursor to load them.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the page"),
+            @ApiResponse(responseCode = "400", description = "Malformed cursor or sort"),
+            @ApiResponse(responseCode = "404", description = "Post not found")
+    })
+    @GetMapping(value = {"/discussions/post/{id}/threads"})
+    public ResponseEntity<CursorPage<DiscussionNode>> findDiscussionThreadPage(
+            @Parameter(description = "ID of the post to find the thread for", required = true)
+            @PathVariable long id,
+            @Parameter(description = "Order of discussions: NEW (newest first) or TOP (highest score first)")
+            @RequestParam(defaultValue = "NEW") DiscussionService.Sort sort,
+            @Parameter(description = "Cursor returned with the previous page, omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of top-level discussions in the page (1-" + DiscussionService.MAX_THREAD_PAGE_SIZE + ")")
+            @RequestParam(defaultValue = "20") int limit,
+            @Parameter(description = "Maximum number of replies included per discussion (0-" + DiscussionService.MAX_REPLIES_PER_DISCUSSION + ")")
+            @RequestParam(defaultValue = "3") int replies,
+            @Parameter(description = "Number of thread levels included (1-" + DiscussionService.MAX_THREAD_DEPTH + ")")
+            @RequestParam(defaultValue = "2") int depth) {
+        Cursor after;
+        try {
+            after = Cursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();  // 400 Bad Request
+        }
+
+        Post post = postService.findById(id);
+        if (post == null) {
+            return ResponseEntity.notFound().build();  // 404 Not Found
+        }
+
+        CursorPage<DiscussionNode> page = discussionService.findThreadPage(post.getId(), null, sort, after,
+                limit, replies, depth);
+        return ResponseEntity.ok(page);  // 200 OK
+    }
+
+    @Operation(summary = "Find a page of replies to a discussion",
+            description = "Retrieves the replies to the given discussion one page at a time, in the same shape as the thread pages. " +
+                    "Use the repliesCursor of a thread discussion to continue where its included replies end.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved the page"),
+            @ApiResponse(responseCode = "400", description = "Malformed cursor or sort"),
+            @ApiResponse(responseCode = "404", description = "Discussion not found")
+    })
+    @GetMapping(value = {"/discussions/{id}/replies"})
+    public ResponseEntity<CursorPage<DiscussionNode>> findDiscussionReplies(
+            @Parameter(description = "ID of the discussion to find replies to", required = true)
+            @PathVariable long id,
+            @Parameter(description = "Order of replies: NEW (newest first) or TOP (highest score first)")
+            @RequestParam(defaultValue = "NEW") DiscussionService.Sort sort,
+            @Parameter(description = "Cursor returned with the previous page, omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of replies in the page (1-" + DiscussionService.MAX_THREAD_PAGE_SIZE + ")")
+            @RequestParam(defaultValue = "20") int limit,
+            @Parameter(description = "Maximum number of nested replies included per reply (0-" + DiscussionService.MAX_REPLIES_PER_DISCUSSION + ")")
+            @RequestParam(defaultValue = "3") int replies,
+            @Parameter(description = "Number of thread levels included (1-" + DiscussionService.MAX_THREAD_DEPTH + ")")
+            @RequestParam(defaultValue = "2") int depth) {
+        Cursor after;
+        try {
+            after = Cursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();  // 400 Bad Request
+        }
+
+        Discussion discussion = discussionService.findById(id);
+        if (discussion == null) {
+            return ResponseEntity.notFound().build();  // 404 Not Found
+        }
+
+        CursorPage<DiscussionNode> page = discussionService.findThreadPage(discussion.getPostId(), discussion.getId(),
+                sort, after, limit, replies, depth);
+        return ResponseEntity.ok(page);  // 200 OK
+    }
+
     @Operation(summary = "Write a new discussion",
             description = "Creates a new discussion related to a post. Optionally, it can be a reply to an existing discussion.")
     @ApiResponses(value = {
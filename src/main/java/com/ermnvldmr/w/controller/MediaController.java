@@ -0,0 +1,251 @@
+package com.ermnvldmr.w.controller;
+
+import com.ermnvldmr.w.domain.MediaVariant;
+import com.ermnvldmr.w.service.MediaService;
+import com.ermnvldmr.w.service.MediaVariantService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.TimeUnit;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+
+@RestController
+@RequestMapping("/api")
+@SuppressWarnings("unused")
+public class MediaController {
+    // Request attributes of Tomcat's sendfile support, see org.apache.catalina.Globals
+    private static final String SENDFILE_SUPPORTED_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    // Content-addressed files never change, legacy ones are revalidated every time
+    private static final String IMMUTABLE_CACHE_CONTROL =
+            "max-age=" + TimeUnit.DAYS.toSeconds(365) + ", public, immutable";
+    private static final String LEGACY_CACHE_CONTROL = "no-cache";
+    // The original served for a width whose variant may not be generated yet
+    private static final String FALLBACK_CACHE_CONTROL = "max-age=60, public";
+
+    private final MediaService mediaService;
+    private final MediaVariantService mediaVariantService;
+
+    public MediaController(MediaService mediaService, MediaVariantService mediaVariantService) {
+        this.mediaService = mediaService;
+        this.mediaVariantService = mediaVariantService;
+    }
+
+    @Operation(summary = "Download a media file",
+            description = "Serves a media file attached to a post, or its narrowest downscaled variant at least width pixels wide. " +
+                    "Supports single byte ranges and conditional requests.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved media file"),
+            @ApiResponse(responseCode = "206", description = "Successfully retrieved the requested range"),
+            @ApiResponse(responseCode = "304", description = "Media file was not modified"),
+            @ApiResponse(responseCode = "400", description = "Malformed media key or width"),
+            @ApiResponse(responseCode = "404", description = "Media file not found"),
+            @ApiResponse(responseCode = "416", description = "Requested range is not satisfiable")
+    })
+    @RequestMapping(value = "media/{key}", method = {RequestMethod.GET, RequestMethod.HEAD})
+    public void findMedia(
+            @Parameter(description = "Key of the media file as stored in the post", required = true)
+            @PathVariable String key,
+            @Parameter(description = "Width in pixels the image is displayed at, omit for the original file")
+            @RequestParam(required = false) Integer width,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        if (!MediaService.isValidKey(key) || (width != null && width <= 0)) {
+            response.setStatus(400);  // 400 Bad Request
+            return;
+        }
+
+        boolean contentAddressed = MediaService.isContentAddressed(key);
+        String servedKey = key;
+        Path file = mediaService.resolve(key);
+        if (width != null) {
+            MediaVariant variant = mediaVariantService.findVariant(key, width).orElse(null);
+            if (variant != null) {
+                servedKey = variant.getVariantKey();
+                file = mediaVariantService.resolve(servedKey);
+            }
+        }
+
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            response.setStatus(404);  // 404 Not Found
+            return;
+        }
+        if (!attributes.isRegularFile()) {
+            response.setStatus(404);  // 404 Not Found
+            return;
+        }
+
+        long length = attributes.size();
+        // HTTP dates have a resolution of seconds
+        long lastModified = attributes.lastModifiedTime().toMillis() / 1000 * 1000;
+        // The whole key, the same content under another extension is served with another type
+        String eTag = contentAddressed
+                ? '"' + servedKey + '"'
+                : '"' + Long.toHexString(length) + '-' + Long.toHexString(lastModified) + '"';
+
+        response.setHeader(HttpHeaders.ETAG, eTag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.CACHE_CONTROL, !contentAddressed ? LEGACY_CACHE_CONTROL
+                : width != null && servedKey.equals(key) ? FALLBACK_CACHE_CONTROL
+                : IMMUTABLE_CACHE_CONTROL);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+
+        if (isNotModified(request, eTag, lastModified)) {
+            response.setStatus(304);  // 304 Not Modified
+            return;
+        }
+
+        long start = 0;
+        long end = length;
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && isRangeApplicable(request, eTag, lastModified)) {
+            long[] bounds = parseRange(range, length);
+            if (bounds == null) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(416);  // 416 Range Not Satisfiable
+                return;
+            }
+            if (bounds.length == 2) {
+                start = bounds[0];
+                end = bounds[1];
+                response.setHeader(HttpHeaders.CONTENT_RANGE,
+                        "bytes " + start + "-" + (end - 1) + "/" + length);
+                response.setStatus(206);  // 206 Partial Content
+            }
+        }
+
+        response.setContentType(MediaTypeFactory.getMediaType(servedKey)
+                .orElse(MediaType.APPLICATION_OCTET_STREAM).toString());
+        response.setContentLengthLong(end - start);
+
+        if (RequestMethod.HEAD.name().equals(request.getMethod()) || start == end) {
+            return;  // 200 OK or 206 Partial Content
+        }
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTRIBUTE))) {
+            // The connector copies the file to the socket itself once the request is done
+            request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, file.toAbsolutePath().toString());
+            request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+            request.setAttribute(SENDFILE_END_ATTRIBUTE, end);
+            return;  // 200 OK or 206 Partial Content
+        }
+
+        try (FileChannel source = FileChannel.open(file, StandardOpenOption.READ)) {
+            WritableByteChannel destination = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            while (position < end) {
+                position += source.transferTo(position, end - position, destination);
+            }
+        }
+    }
+
+    static boolean isNotModified(HttpServletRequest request, String eTag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            return matchesETag(ifNoneMatch, eTag);
+        }
+
+        long ifModifiedSince = getDateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return ifModifiedSince != -1 && lastModified <= ifModifiedSince;
+    }
+
+    static boolean isRangeApplicable(HttpServletRequest request, String eTag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+
+        if (ifRange.startsWith("\"")) {
+            return ifRange.equals(eTag);
+        }
+        return getDateHeader(request, HttpHeaders.IF_RANGE) == lastModified;
+    }
+
+    private static boolean matchesETag(String header, String eTag) {
+        for (String candidate : header.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static long getDateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * @return {@code [start, end)} of a single satisfiable range, an empty array when the header
+     * should be ignored and the whole file served, or {@code null} when it is not satisfiable.
+     */
+    static long[] parseRange(String header, long length) {
+        if (!header.startsWith("bytes=") || header.indexOf(',') != -1) {
+            // Other units and multiple ranges are not supported
+            return new long[0];
+        }
+
+        String spec = header.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash == -1) {
+            return new long[0];
+        }
+
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+
+            if (first.isEmpty()) {
+                // Suffix range, the last N bytes
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return null;
+                }
+                return new long[]{Math.max(0, length - suffix), length};
+            }
+
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length : Long.parseLong(last) + 1;
+            // An open-ended range starting past the end is unsatisfiable, not malformed
+            if (start < 0 || (!last.isEmpty() && end <= start)) {
+                return new long[0];
+            }
+            if (start >= length) {
+                return null;
+            }
+            return new long[]{start, Math.min(end, length)};
+        } catch (NumberFormatException e) {
+            return new long[0];
+        }
+    }
+}
@@ -2,14 +2,22 @@ package com.ermnvldmr.w.controller;
 
 import com.ermnvldmr.w.domain.Post;
 import com.ermnvldmr.w.domain.User;
+import com.ermnvldmr.w.dto.CursorPage;
+import com.ermnvldmr.w.dto.PostDto;
 import com.ermnvldmr.w.form.WritePostForm;
+import com.ermnvldmr.w.service.MediaTooLargeException;
 import com.ermnvldmr.w.service.PostService;
 import com.ermnvldmr.w.service.UserService;
+import com.ermnvldmr.w.utils.Cursor;
+import com.ermnvldmr.w.utils.JsonStreams;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.IOException;
 import java.util.List;
@@ -18,6 +26,9 @@ import static com.ermnvldmr.w.utils.Utils.getValidationErrors;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 
@@ -27,35 +38,63 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 public class PostController {
     private final PostService postService;
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
-    public PostController(PostService postService, UserService userService) {
+    public PostController(PostService postService, UserService userService, ObjectMapper objectMapper) {
         this.postService = postService;
         this.userService = userService;
+        this.objectMapper = objectMapper;
     }
 
-    @Operation(summary = "Retrieve all posts",
-            description = "Fetches a list of all posts.")
+    @Operation(summary = "Retrieve a page of posts",
+            description = "Fetches posts newest first, one page at a time. Pass the returned nextCursor to get the following page.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved posts")
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved posts"),
+            @ApiResponse(responseCode = "400", description = "Malformed cursor")
     })
     @GetMapping("posts")
-    public ResponseEntity<List<Post>> findPosts() {
-        List<Post> posts = postService.findAll();
+    public ResponseEntity<CursorPage<PostDto>> findPosts(
+            @Parameter(description = "Cursor returned with the previous page, omit for the first page")
+            @RequestParam(required = false) String cursor,
+            @Parameter(description = "Maximum number of posts in the page (1-" + PostService.MAX_FEED_PAGE_SIZE + ")")
+            @RequestParam(defaultValue = "20") int limit) {
+        Cursor after;
+        try {
+            after = Cursor.decode(cursor);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();  // 400 Bad Request
+        }
+
+        CursorPage<PostDto> posts = postService.findFeedPage(after, limit);
+        return ResponseEntity.ok(posts);  // 200 OK
+    }
+
+    @Operation(summary = "Retrieve the hot posts",
+            description = "Fetches recent posts ranked by votes, views and discussions, decayed by age.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved posts")
+    })
+    @GetMapping("posts/hot")
+    public ResponseEntity<List<PostDto>> findHotPosts(
+            @Parameter(description = "Maximum number of posts (1-" + PostService.MAX_FEED_PAGE_SIZE + ")")
+            @RequestParam(defaultValue = "20") int limit) {
+        List<PostDto> posts = postService.findHotPage(limit);
         return ResponseEntity.ok(posts);  // 200 OK
     }
 
     @Operation(summary = "Create a new post",
-            description = "Writes a new post. Requires user authentication via JWT.")
+            description = "Writes a new post from a multipart form. Requires user authentication via JWT.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "201", description = "Post created successfully"),
             @ApiResponse(responseCode = "400", description = "Validation errors"),
             @ApiResponse(responseCode = "401", description = "Unauthorized access"),
+            @ApiResponse(responseCode = "413", description = "Media files are too large"),
             @ApiResponse(responseCode = "500", description = "Internal server error due to media upload failure")
     })
-    @PostMapping("posts")
+    @PostMapping(value = "posts", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<Object> writePost(
-            @Parameter(description = "Post data to create a new post", required = true)
-            @Valid @RequestBody WritePostForm postForm,
+            @Parameter(description = "Post data to create a new post, with its media files as repeated media parts", required = true)
+            @Valid @ModelAttribute WritePostForm postForm,
 
             @Parameter(description = "JWT token for user authentication", required = true)
             @RequestParam String jwt,
@@ -73,6 +112,8 @@ public class PostController {
         try {
             Post createdPost = postService.writePost(postForm, user);
             return ResponseEntity.status(201).body(createdPost);  // 201 Created
+        } catch (MediaTooLargeException e) {
+            return ResponseEntity.status(413).body(e.getMessage());  // 413 Payload Too Large
         } catch (IOException e) {
             return ResponseEntity.status(500).body("Media upload failed.");  // 500 Internal Server Error
         }
@@ -134,24 +175,26 @@ public class PostController {
     @Operation(summary = "Retrieve all posts by user ID",
             description = "Fetches a list of posts created by a specific user.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved user's posts"),
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved user's posts",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = PostDto.class)))),
             @ApiResponse(responseCode = "400", description = "Invalid user ID provided"),
             @ApiResponse(responseCode = "404", description = "No posts found for the specified user")
     })
     @GetMapping("/posts/user/{userId}")
-    public ResponseEntity<List<Post>> findPostsByUserId(
+    public ResponseEntity<StreamingResponseBody> findPostsByUserId(
             @Parameter(description = "ID of the user whose posts are to be retrieved", required = true)
             @PathVariable Long userId) {
         if (userId == null || userId <= 0) {
             return ResponseEntity.badRequest().build(); // 400 Bad Request
         }
 
-        List<Post> posts = postService.findAllByUserId(userId);
-        if (posts == null || posts.isEmpty()) {
+        if (!postService.existsByUserId(userId)) {
             return ResponseEntity.status(404).build(); // 404 Not Found
         }
 
-        return ResponseEntity.ok(posts); // 200 OK
+        StreamingResponseBody posts = JsonStreams.<PostDto>array(objectMapper,
+                post -> postService.forEachByUserId(userId, post));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(posts); // 200 OK
     }
 
     private String getViewerIdentifier(String jwt, HttpServletRequest request) {
@@ -0,0 +1,19 @@
+package com.ermnvldmr.w.controller;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+import org.springframework.web.multipart.MaxUploadSizeExceededException;
+
+/**
+ * Uploads over {@code spring.servlet.multipart.*}, which follow {@code config.mediaMax*}, are
+ * refused while the request is parsed, before any controller runs. They get the same
+ * 413 as the uploads {@link PostController} refuses itself.
+ */
+@RestControllerAdvice
+public class UploadLimitExceptionHandler {
+    @ExceptionHandler(MaxUploadSizeExceededException.class)
+    public ResponseEntity<Object> handleMaxUploadSizeExceeded(MaxUploadSizeExceededException e) {
+        return ResponseEntity.status(413).body("Media files are too large.");  // 413 Payload Too Large
+    }
+}
@@ -1,24 +1,30 @@
 package com.ermnvldmr.w.controller;
 
 import com.ermnvldmr.w.domain.User;
+import com.ermnvldmr.w.dto.UserDto;
 import com.ermnvldmr.w.form.UserCredentialsEditForm;
 import com.ermnvldmr.w.form.UserCredentialsEnter;
 import com.ermnvldmr.w.form.UserCredentialsRegister;
 import com.ermnvldmr.w.service.UserService;
 import com.ermnvldmr.w.form.validator.UserCredentialsEnterValidator;
 import com.ermnvldmr.w.form.validator.UserCredentialsRegisterValidator;
+import com.ermnvldmr.w.utils.JsonStreams;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.BindingResult;
 import org.springframework.web.bind.WebDataBinder;
 import org.springframework.web.bind.annotation.*;
-
-import java.util.List;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import static com.ermnvldmr.w.utils.Utils.getValidationErrors;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.ArraySchema;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 
@@ -29,13 +35,16 @@ public class UserController {
     private final UserService userService;
     private final UserCredentialsEnterValidator userCredentialsEnterValidator;
     private final UserCredentialsRegisterValidator userCredentialsRegisterValidator;
+    private final ObjectMapper objectMapper;
 
     public UserController(UserService userService,
                           UserCredentialsEnterValidator userCredentialsEnterValidator,
-                          UserCredentialsRegisterValidator userCredentialsRegisterValidator) {
+                          UserCredentialsRegisterValidator userCredentialsRegisterValidator,
+                          ObjectMapper objectMapper) {
         this.userService = userService;
         this.userCredentialsEnterValidator = userCredentialsEnterValidator;
         this.userCredentialsRegisterValidator = userCredentialsRegisterValidator;
+        this.objectMapper = objectMapper;
     }
 
     @InitBinder("userCredentialsEnter")
@@ -93,12 +102,13 @@ public class UserController {
     @Operation(summary = "Retrieve all users",
             description = "Fetches a list of all registered users.")
     @ApiResponses(value = {
-            @ApiResponse(responseCode = "200", description = "Successfully retrieved users")
+            @ApiResponse(responseCode = "200", description = "Successfully retrieved users",
+                    content = @Content(array = @ArraySchema(schema = @Schema(implementation = UserDto.class))))
     })
     @GetMapping("users")
-    public ResponseEntity<List<User>> findUsers() {
-        List<User> users = this.userService.findAll();
-        return ResponseEntity.ok(users);  // 200 OK
+    public ResponseEntity<StreamingResponseBody> findUsers() {
+        StreamingResponseBody users = JsonStreams.<UserDto>array(objectMapper, this.userService::forEachUser);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(users);  // 200 OK
     }
 
     @Operation(summary = "Register a new user",
@@ -4,6 +4,8 @@ import com.ermnvldmr.w.domain.Discussion;
 import com.ermnvldmr.w.domain.Post;
 import com.ermnvldmr.w.domain.User;
 import com.ermnvldmr.w.domain.Vote;
+import com.ermnvldmr.w.dto.VoteBatch;
+import com.ermnvldmr.w.dto.VoteResult;
 import com.ermnvldmr.w.service.DiscussionService;
 import com.ermnvldmr.w.service.PostService;
 import com.ermnvldmr.w.service.UserService;
@@ -11,6 +13,8 @@ import com.ermnvldmr.w.service.VoteService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Set;
+
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -36,14 +40,15 @@ public class VoteController {
     }
 
     @Operation(summary = "Vote on a post",
-            description = "Allows a user to upvote or downvote a post.")
+            description = "Allows a user to upvote or downvote a post. Voting the same way again withdraws the vote. " +
+                    "Returns the resulting vote and the change of the post's score.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Vote recorded successfully"),
             @ApiResponse(responseCode = "401", description = "Unauthorized access"),
             @ApiResponse(responseCode = "404", description = "Post not found")
     })
     @PostMapping("/votes/post/{id}")
-    public ResponseEntity<Object> votePost(
+    public ResponseEntity<VoteResult> votePost(
             @Parameter(description = "ID of the post to vote on", required = true)
             @PathVariable long id,
             @Parameter(description = "JWT of the user", required = true)
@@ -56,24 +61,23 @@ public class VoteController {
             return ResponseEntity.status(401).build();  // 401 Unauthorized
         }
 
-        Post post = postService.findById(id);
-        if (post == null) {
+        VoteResult vote = voteService.votePost(id, user, upvote);
+        if (vote == null) {
             return ResponseEntity.notFound().build();  // 404 Not Found
         }
-
-        Vote vote = voteService.votePost(post, user, upvote);
         return ResponseEntity.ok(vote);  // Return 200 OK with the vote details
     }
 
     @Operation(summary = "Vote on a discussion",
-            description = "Allows a user to upvote or downvote a discussion.")
+            description = "Allows a user to upvote or downvote a discussion. Voting the same way again withdraws the vote. " +
+                    "Returns the resulting vote and the change of the discussion's score.")
     @ApiResponses(value = {
             @ApiResponse(responseCode = "200", description = "Vote recorded successfully"),
             @ApiResponse(responseCode = "401", description = "Unauthorized access"),
             @ApiResponse(responseCode = "404", description = "Discussion not found")
     })
     @PostMapping("/votes/discussion/{id}")
-    public ResponseEntity<Object> voteDiscussion(
+    public ResponseEntity<VoteResult> voteDiscussion(
             @Parameter(description = "ID of the discussion to vote on", required = true)
             @PathVariable long id,
             @Parameter(description = "JWT of the user", required = true)
@@ -86,15 +90,42 @@ public class VoteController {
             return ResponseEntity.status(401).build();  // 401 Unauthorized
         }
 
-        Discussion discussion = discussionService.findById(id);
-        if (discussion == null) {
+        VoteResult vote = voteService.voteDiscussion(id, user, upvote);
+        if (vote == null) {
             return ResponseEntity.notFound().build();  // 404 Not Found
         }
-
-        Vote vote = voteService.voteDiscussion(discussion, user, upvote);
         return ResponseEntity.ok(vote);  // Return 200 OK with the vote details
     }
 
+    @Operation(summary = "Get user's votes on several posts and discussions",
+            description = "Fetches the vote status for up to " + VoteService.MAX_BATCH_SIZE + " posts and discussions at once. " +
+                    "Maps each voted id to true for an upvote and false for a downvote, ids without a vote are left out.")
+    @ApiResponses(value = {
+            @ApiResponse(responseCode = "200", description = "Vote details retrieved successfully"),
+            @ApiResponse(responseCode = "400", description = "Too many ids requested"),
+            @ApiResponse(responseCode = "401", description = "Unauthorized access")
+    })
+    @GetMapping("/votes/batch")
+    public ResponseEntity<VoteBatch> getVotes(
+            @Parameter(description = "JWT of the user", required = true)
+            @RequestParam String jwt,
+            @Parameter(description = "Comma separated IDs of the posts to check")
+            @RequestParam(defaultValue = "") Set<Long> postIds,
+            @Parameter(description = "Comma separated IDs of the discussions to check")
+            @RequestParam(defaultValue = "") Set<Long> discussionIds) {
+        if (postIds.size() + discussionIds.size() > VoteService.MAX_BATCH_SIZE) {
+            return ResponseEntity.badRequest().build();  // 400 Bad Request
+        }
+
+        User user = userService.findByJwt(jwt);
+        if (user == null) {
+            return ResponseEntity.status(401).build();  // 401 Unauthorized
+        }
+
+        VoteBatch votes = voteService.findBatchByUser(user, postIds, discussionIds);
+        return ResponseEntity.ok(votes);  // 200 OK
+    }
+
     @Operation(summary = "Get user's vote on a post",
             description = "Fetches the vote status for a specific post.")
     @ApiResponses(value = {
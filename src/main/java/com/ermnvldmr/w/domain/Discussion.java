@@ -12,11 +12,18 @@ import java.util.Date;
 import java.util.List;
 
 @Entity
-@Table(indexes = @Index(columnList = "creationTime"))
+@Table(indexes = {
+        @Index(columnList = "creationTime"),
+        @Index(columnList = "parent_discussion_id"),
+        @Index(columnList = "post_id, parent_discussion_id, creationTime, id"),
+        @Index(columnList = "post_id, parent_discussion_id, score, id")
+})
 @SuppressWarnings("unused")
 public class Discussion {
+    // Pooled: one sequence round trip per 50 inserts, which also lets them be batched
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "discussion_seq")
+    @SequenceGenerator(name = "discussion_seq", sequenceName = "discussion_seq", allocationSize = 50)
     private long id;
 
     @ManyToOne
@@ -27,7 +34,8 @@ public class Discussion {
     @JoinColumn(name = "post_id", nullable = false)
     private Post post;
 
-    @OneToOne
+    // Many replies per discussion, a @OneToOne would get a unique key on the column
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "parent_discussion_id")
     private Discussion parentDiscussion;
 
@@ -40,6 +48,17 @@ public class Discussion {
     @OneToMany(mappedBy = "discussion", cascade = CascadeType.ALL)
     private final List<Vote> votes = new ArrayList<>();
 
+    // Maintained by VoteService with in-place SQL increments, never written from the entity
+    @Column(updatable = false)
+    private long upvotes = 0;
+
+    @Column(updatable = false)
+    private long downvotes = 0;
+
+    // upvotes - downvotes, stored so that threads can be sorted by it with an index
+    @Column(updatable = false)
+    private long score = 0;
+
     @CreationTimestamp
     private Date creationTime;
 
@@ -63,6 +82,10 @@ public class Discussion {
         this.post = post;
     }
 
+    public long getPostId() {
+        return post.getId();
+    }
+
     public Long getParentDiscussionId() {
         return parentDiscussion != null ? parentDiscussion.getId() : null;
     }
@@ -79,8 +102,16 @@ public class Discussion {
         this.text = text;
     }
 
+    public long getUpvotes() {
+        return upvotes;
+    }
+
+    public long getDownvotes() {
+        return downvotes;
+    }
+
     public long getVoteCount() {
-        return votes.stream().mapToLong((vote) -> vote.isUpvote() ? 1 : -1).sum();
+        return score;
     }
 
     public Date getCreationTime() {
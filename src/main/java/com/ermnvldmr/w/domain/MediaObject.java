@@ -0,0 +1,60 @@
+package com.ermnvldmr.w.domain;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.util.Date;
+
+/**
+ * Stored media file, shared by every post that references the same content.
+ */
+@Entity
+@Table(indexes = @Index(columnList = "refCount, updateTime"))
+@SuppressWarnings("unused")
+public class MediaObject {
+    // SHA-256 of the content in hex, plus the original file extension
+    @Id
+    @Column(length = 80)
+    private String mediaKey;
+
+    private long size;
+
+    // Number of references from Post.media, maintained with in-place SQL updates
+    private long refCount;
+
+    @CreationTimestamp
+    private Date creationTime;
+
+    // Last reference count change, the garbage collector's grace period starts here
+    @UpdateTimestamp
+    private Date updateTime;
+
+    public String getMediaKey() {
+        return mediaKey;
+    }
+
+    public void setMediaKey(String mediaKey) {
+        this.mediaKey = mediaKey;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public long getRefCount() {
+        return refCount;
+    }
+
+    public Date getCreationTime() {
+        return creationTime;
+    }
+
+    public Date getUpdateTime() {
+        return updateTime;
+    }
+}
@@ -0,0 +1,65 @@
+package com.ermnvldmr.w.domain;
+
+import jakarta.persistence.*;
+
+/**
+ * Downscaled copy of an image media file, see {@code MediaVariantService}.
+ */
+@Entity
+@Table(indexes = @Index(columnList = "mediaKey, width"))
+@SuppressWarnings("unused")
+public class MediaVariant {
+    // "<media key>_<width>.<format>", derived from the source key and the width
+    @Id
+    @Column(length = 90)
+    private String variantKey;
+
+    @Column(length = 80, nullable = false)
+    private String mediaKey;
+
+    private int width;
+
+    private int height;
+
+    private long size;
+
+    public String getVariantKey() {
+        return variantKey;
+    }
+
+    public void setVariantKey(String variantKey) {
+        this.variantKey = variantKey;
+    }
+
+    public String getMediaKey() {
+        return mediaKey;
+    }
+
+    public void setMediaKey(String mediaKey) {
+        this.mediaKey = mediaKey;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public void setWidth(int width) {
+        this.width = width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public void setHeight(int height) {
+        this.height = height;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+}
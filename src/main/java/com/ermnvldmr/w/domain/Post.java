@@ -11,6 +11,10 @@ import java.util.Date;
 import java.util.List;
 
 @Entity
+@Table(indexes = {
+        @Index(columnList = "creationTime, id"),
+        @Index(columnList = "hotScore, id")
+})
 @SuppressWarnings("unused")
 public class Post {
     @Id
@@ -39,8 +43,25 @@ public class Post {
     @OneToMany(mappedBy = "post", cascade = CascadeType.ALL)
     private final List<Vote> votes = new ArrayList<>();
 
+    // Maintained by VoteService with in-place SQL increments, never written from the entity
+    @Column(updatable = false)
+    private long upvotes = 0;
+
+    @Column(updatable = false)
+    private long downvotes = 0;
+
+    // Maintained by DiscussionService, counting the collection would load every discussion
+    @Column(updatable = false)
+    private long discussionCount = 0;
+
+    // Maintained by ViewCounter, never written from the entity
+    @Column(updatable = false)
     private long viewCount = 0;
 
+    // Ranking of the hot feed, checkpointed by HotFeedService
+    @Column(updatable = false)
+    private double hotScore = 0;
+
     @CreationTimestamp
     private Date creationTime;
 
@@ -89,19 +110,27 @@ public class Post {
     }
 
     public long getDiscussionCount() {
-    	return discussions.size();
+    	return discussionCount;
+    }
+
+    public long getUpvotes() {
+        return upvotes;
+    }
+
+    public long getDownvotes() {
+        return downvotes;
     }
 
     public long getVoteCount() {
-        return votes.stream().mapToLong((vote) -> vote.isUpvote() ? 1 : -1).sum();
+        return upvotes - downvotes;
     }
 
     public long getViewCount() {
         return viewCount;
     }
 
-    public void incrementViewCount() {
-        this.viewCount++;
+    public void setViewCount(long viewCount) {
+        this.viewCount = viewCount;
     }
 
     public Date getCreationTime() {
@@ -111,4 +140,12 @@ public class Post {
     public void setCreationTime(Date creationTime) {
         this.creationTime = creationTime;
     }
+
+    public double getHotScore() {
+        return hotScore;
+    }
+
+    public void setHotScore(double hotScore) {
+        this.hotScore = hotScore;
+    }
 }
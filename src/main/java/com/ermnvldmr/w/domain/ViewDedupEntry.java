@@ -0,0 +1,34 @@
+package com.ermnvldmr.w.domain;
+
+import jakarta.persistence.*;
+
+/**
+ * Row of the view dedup state shared by all nodes, see {@code DatabaseViewDedupStore}.
+ */
+@Entity
+@Table(indexes = @Index(columnList = "viewedAt"))
+@SuppressWarnings("unused")
+public class ViewDedupEntry {
+    // Hash of the (post, viewer) pair
+    @Id
+    private long viewKey;
+
+    // Epoch milliseconds of the last counted view
+    private long viewedAt;
+
+    public long getViewKey() {
+        return viewKey;
+    }
+
+    public void setViewKey(long viewKey) {
+        this.viewKey = viewKey;
+    }
+
+    public long getViewedAt() {
+        return viewedAt;
+    }
+
+    public void setViewedAt(long viewedAt) {
+        this.viewedAt = viewedAt;
+    }
+}
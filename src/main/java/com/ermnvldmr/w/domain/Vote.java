@@ -3,10 +3,16 @@ package com.ermnvldmr.w.domain;
 import jakarta.persistence.*;
 
 @Entity
+@Table(uniqueConstraints = {
+        @UniqueConstraint(columnNames = {"user_id", "post_id"}),
+        @UniqueConstraint(columnNames = {"user_id", "discussion_id"})
+})
 @SuppressWarnings("unused")
 public class Vote {
+    // Pooled, so that VoteService's native inserts can take ids with NEXT VALUE FOR vote_seq
     @Id
-    @GeneratedValue
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "vote_seq")
+    @SequenceGenerator(name = "vote_seq", sequenceName = "vote_seq", allocationSize = 50)
     private Long id;
 
     @ManyToOne
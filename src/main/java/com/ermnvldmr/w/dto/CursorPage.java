@@ -0,0 +1,37 @@
+package com.ermnvldmr.w.dto;
+
+import com.ermnvldmr.w.utils.Cursor;
+
+import java.util.List;
+import java.util.function.Function;
+
+public class CursorPage<T> {
+    private final List<T> items;
+    private final String nextCursor;
+
+    public CursorPage(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Builds a page out of up to {@code pageSize + 1} fetched rows, the extra row
+     * only signalling that another page exists.
+     */
+    public static <T> CursorPage<T> of(List<T> rows, int pageSize, Function<T, Cursor> cursorOf) {
+        if (rows.size() <= pageSize) {
+            return new CursorPage<>(rows, null);
+        }
+
+        List<T> items = rows.subList(0, pageSize);
+        return new CursorPage<>(items, cursorOf.apply(items.get(pageSize - 1)).encode());
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+}
@@ -0,0 +1,52 @@
+package com.ermnvldmr.w.dto;
+
+import com.ermnvldmr.w.domain.Discussion;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonUnwrapped;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Discussion serialized together with its replies.
+ */
+public class DiscussionNode {
+    @JsonUnwrapped
+    private final Discussion discussion;
+
+    private final List<DiscussionNode> replies = new ArrayList<>();
+
+    // Whether there are replies beyond those included, and where to continue loading them from
+    private boolean moreReplies = false;
+
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String repliesCursor;
+
+    public DiscussionNode(Discussion discussion) {
+        this.discussion = discussion;
+    }
+
+    public Discussion getDiscussion() {
+        return discussion;
+    }
+
+    public List<DiscussionNode> getReplies() {
+        return replies;
+    }
+
+    public boolean isMoreReplies() {
+        return moreReplies;
+    }
+
+    public void setMoreReplies(boolean moreReplies) {
+        this.moreReplies = moreReplies;
+    }
+
+    public String getRepliesCursor() {
+        return repliesCursor;
+    }
+
+    public void setRepliesCursor(String repliesCursor) {
+        this.repliesCursor = repliesCursor;
+    }
+}
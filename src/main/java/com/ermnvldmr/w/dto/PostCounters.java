@@ -0,0 +1,42 @@
+package com.ermnvldmr.w.dto;
+
+import java.util.Date;
+
+/**
+ * Engagement counters of a post, the input of its hot score.
+ */
+public class PostCounters {
+    private final long id;
+    private final Date creationTime;
+    private final long voteCount;
+    private final long viewCount;
+    private final long discussionCount;
+
+    public PostCounters(long id, Date creationTime, long voteCount, long viewCount, long discussionCount) {
+        this.id = id;
+        this.creationTime = creationTime;
+        this.voteCount = voteCount;
+        this.viewCount = viewCount;
+        this.discussionCount = discussionCount;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Date getCreationTime() {
+        return creationTime;
+    }
+
+    public long getVoteCount() {
+        return voteCount;
+    }
+
+    public long getViewCount() {
+        return viewCount;
+    }
+
+    public long getDiscussionCount() {
+        return discussionCount;
+    }
+}
@@ -0,0 +1,80 @@
+package com.ermnvldmr.w.dto;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Read model of {@link com.ermnvldmr.w.domain.Post}, serialized the same way. Built by
+ * JPQL constructor expressions, so serializing it never touches the database.
+ */
+public class PostDto {
+    private final long id;
+    private final String title;
+    private final String text;
+    private final List<String> media;
+    private final UserDto user;
+    private final long discussionCount;
+    private final long upvotes;
+    private final long downvotes;
+    private final long viewCount;
+    private final Date creationTime;
+
+    public PostDto(long id, String title, String text, List<String> media,
+                   long userId, String userName, String userLogin, boolean userAdmin, Date userCreationTime,
+                   long discussionCount, long upvotes, long downvotes, long viewCount, Date creationTime) {
+        this.id = id;
+        this.title = title;
+        this.text = text;
+        this.media = media;
+        this.user = new UserDto(userId, userName, userLogin, userAdmin, userCreationTime);
+        this.discussionCount = discussionCount;
+        this.upvotes = upvotes;
+        this.downvotes = downvotes;
+        this.viewCount = viewCount;
+        this.creationTime = creationTime;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    public List<String> getMedia() {
+        return media;
+    }
+
+    public UserDto getUser() {
+        return user;
+    }
+
+    public long getDiscussionCount() {
+        return discussionCount;
+    }
+
+    public long getUpvotes() {
+        return upvotes;
+    }
+
+    public long getDownvotes() {
+        return downvotes;
+    }
+
+    public long getVoteCount() {
+        return upvotes - downvotes;
+    }
+
+    public long getViewCount() {
+        return viewCount;
+    }
+
+    public Date getCreationTime() {
+        return creationTime;
+    }
+}
@@ -0,0 +1,42 @@
+package com.ermnvldmr.w.dto;
+
+import java.util.Date;
+
+/**
+ * Read model of {@link com.ermnvldmr.w.domain.User}, serialized the same way.
+ */
+public class UserDto {
+    private final long id;
+    private final String name;
+    private final String login;
+    private final boolean admin;
+    private final Date creationTime;
+
+    public UserDto(long id, String name, String login, boolean admin, Date creationTime) {
+        this.id = id;
+        this.name = name;
+        this.login = login;
+        this.admin = admin;
+        this.creationTime = creationTime;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getLogin() {
+        return login;
+    }
+
+    public boolean isAdmin() {
+        return admin;
+    }
+
+    public Date getCreationTime() {
+        return creationTime;
+    }
+}
@@ -0,0 +1,25 @@
+package com.ermnvldmr.w.dto;
+
+import java.util.Map;
+
+/**
+ * Votes of a user on a set of posts and discussions: {@code true} for an upvote,
+ * {@code false} for a downvote. Ids the user did not vote on are absent.
+ */
+public class VoteBatch {
+    private final Map<Long, Boolean> posts;
+    private final Map<Long, Boolean> discussions;
+
+    public VoteBatch(Map<Long, Boolean> posts, Map<Long, Boolean> discussions) {
+        this.posts = posts;
+        this.discussions = discussions;
+    }
+
+    public Map<Long, Boolean> getPosts() {
+        return posts;
+    }
+
+    public Map<Long, Boolean> getDiscussions() {
+        return discussions;
+    }
+}
@@ -0,0 +1,23 @@
+package com.ermnvldmr.w.dto;
+
+/**
+ * Outcome of a vote toggle: the user's vote afterwards and how it moved the target's score.
+ */
+public class VoteResult {
+    // True for an upvote, false for a downvote, null when the vote was withdrawn
+    private final Boolean upvote;
+    private final long scoreDelta;
+
+    public VoteResult(Boolean upvote, long scoreDelta) {
+        this.upvote = upvote;
+        this.scoreDelta = scoreDelta;
+    }
+
+    public Boolean getUpvote() {
+        return upvote;
+    }
+
+    public long getScoreDelta() {
+        return scoreDelta;
+    }
+}
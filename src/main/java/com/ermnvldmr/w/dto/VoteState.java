@@ -0,0 +1,22 @@
+package com.ermnvldmr.w.dto;
+
+/**
+ * A user's vote on a post or a discussion, identified by the target's id.
+ */
+public class VoteState {
+    private final long targetId;
+    private final boolean upvote;
+
+    public VoteState(long targetId, boolean upvote) {
+        this.targetId = targetId;
+        this.upvote = upvote;
+    }
+
+    public long getTargetId() {
+        return targetId;
+    }
+
+    public boolean isUpvote() {
+        return upvote;
+    }
+}
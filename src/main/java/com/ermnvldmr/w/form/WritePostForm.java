@@ -38,7 +38,7 @@ public class WritePostForm {
         return media;
     }
 
-    public void setImage(List<MultipartFile> media) {
+    public void setMedia(List<MultipartFile> media) {
         this.media = media;
     }
 }
@@ -1,16 +1,73 @@
 package com.ermnvldmr.w.repository;
 
-import com.ermnvldmr.w.domain.Post;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 import com.ermnvldmr.w.domain.Discussion;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
 
 public interface DiscussionRepository extends JpaRepository<Discussion, Long> {
-    @Query(value = "SELECT * FROM discussion WHERE post_id=?1", nativeQuery = true)
+    // Authors and parents come in the same query instead of one lazy load per discussion
+    @Query("SELECT d FROM Discussion d JOIN FETCH d.user LEFT JOIN FETCH d.parentDiscussion " +
+            "WHERE d.post.id = ?1 ORDER BY d.creationTime DESC, d.id DESC")
     List<Discussion> findAllByPostId(long postId);
 
+    @Query("SELECT d FROM Discussion d JOIN FETCH d.user " +
+            "WHERE d.post.id = ?1 AND d.parentDiscussion IS NULL " +
+            "AND (d.creationTime < ?2 OR (d.creationTime = ?2 AND d.id < ?3)) " +
+            "ORDER BY d.creationTime DESC, d.id DESC")
+    List<Discussion> findTopLevelNewestAfter(long postId, Date creationTime, long id, Limit limit);
+
+    @Query("SELECT d FROM Discussion d JOIN FETCH d.user " +
+            "WHERE d.post.id = ?1 AND d.parentDiscussion IS NULL " +
+            "AND (d.score < ?2 OR (d.score = ?2 AND d.id < ?3)) " +
+            "ORDER BY d.score DESC, d.id DESC")
+    List<Discussion> findTopLevelTopAfter(long postId, long score, long id, Limit limit);
+
+    // First perParent replies of each parent after the given position, in one query for all parents
+    @Query(value = "SELECT * FROM (SELECT d.*, ROW_NUMBER() OVER (PARTITION BY d.parent_discussion_id " +
+            "ORDER BY d.creation_time DESC, d.id DESC) AS reply_rank FROM discussion d " +
+            "WHERE d.post_id=?1 AND d.parent_discussion_id IN (?2) " +
+            "AND (d.creation_time < ?3 OR (d.creation_time = ?3 AND d.id < ?4))) ranked " +
+            "WHERE reply_rank <= ?5 ORDER BY parent_discussion_id, reply_rank", nativeQuery = true)
+    List<Discussion> findRepliesNewestAfter(long postId, Collection<Long> parentIds,
+                                            Date creationTime, long id, int perParent);
+
+    @Query(value = "SELECT * FROM (SELECT d.*, ROW_NUMBER() OVER (PARTITION BY d.parent_discussion_id " +
+            "ORDER BY d.score DESC, d.id DESC) AS reply_rank FROM discussion d " +
+            "WHERE d.post_id=?1 AND d.parent_discussion_id IN (?2) " +
+            "AND (d.score < ?3 OR (d.score = ?3 AND d.id < ?4))) ranked " +
+            "WHERE reply_rank <= ?5 ORDER BY parent_discussion_id, reply_rank", nativeQuery = true)
+    List<Discussion> findRepliesTopAfter(long postId, Collection<Long> parentIds,
+                                         long score, long id, int perParent);
+
+    @Query(value = "SELECT DISTINCT parent_discussion_id FROM discussion " +
+            "WHERE post_id=?1 AND parent_discussion_id IN (?2)", nativeQuery = true)
+    List<Long> findParentIdsWithReplies(long postId, Collection<Long> parentIds);
+
     @Query(value = "SELECT * FROM discussion WHERE user_id=?1", nativeQuery = true)
     List<Discussion> findAllByUserId(Long userId);
+
+    @Query(value = "SELECT COALESCE(MAX(id), 0) FROM discussion", nativeQuery = true)
+    long findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE discussion SET upvotes=upvotes+?2, downvotes=downvotes+?3, score=score+?2-?3 " +
+            "WHERE id=?1", nativeQuery = true)
+    void addVotes(long id, long upvotes, long downvotes);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE discussion d SET " +
+            "d.upvotes=(SELECT COUNT(*) FROM vote v WHERE v.discussion_id=d.id AND v.upvote), " +
+            "d.downvotes=(SELECT COUNT(*) FROM vote v WHERE v.discussion_id=d.id AND NOT v.upvote), " +
+            "d.score=(SELECT COALESCE(SUM(IF(v.upvote, 1, -1)), 0) FROM vote v WHERE v.discussion_id=d.id) " +
+            "WHERE d.id BETWEEN ?1 AND ?2", nativeQuery = true)
+    int reconcileVotes(long fromId, long toId);
 }
@@ -0,0 +1,44 @@
+package com.ermnvldmr.w.repository;
+
+import com.ermnvldmr.w.domain.MediaObject;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+
+public interface MediaObjectRepository extends JpaRepository<MediaObject, String> {
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT INTO media_object (media_key, size, ref_count, creation_time, update_time) " +
+            "VALUES (?1, ?2, 1, NOW(6), NOW(6)) " +
+            "ON DUPLICATE KEY UPDATE ref_count=ref_count+1, update_time=NOW(6)", nativeQuery = true)
+    void addReference(String mediaKey, long size);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE media_object SET ref_count=ref_count-1, update_time=NOW(6) " +
+            "WHERE media_key=?1 AND ref_count>0", nativeQuery = true)
+    void removeReference(String mediaKey);
+
+    // Keys that are referenced, or were released too recently to be collected
+    @Query(value = "SELECT media_key FROM media_object WHERE media_key IN (?1) " +
+            "AND (ref_count > 0 OR update_time > ?2)", nativeQuery = true)
+    List<String> findLiveKeys(Collection<String> mediaKeys, Date releasedBefore);
+
+    // Row of a file no post ever referenced, which the garbage collector locks while deleting it
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO media_object (media_key, size, ref_count, creation_time, update_time) " +
+            "VALUES (?1, 0, 0, NOW(6), ?2)", nativeQuery = true)
+    void insertUnreferenced(String mediaKey, Date releasedAt);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM media_object WHERE media_key IN (?1) " +
+            "AND ref_count = 0 AND update_time <= ?2", nativeQuery = true)
+    int deleteUnreferenced(Collection<String> mediaKeys, Date releasedBefore);
+}
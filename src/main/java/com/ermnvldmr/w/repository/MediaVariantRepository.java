@@ -0,0 +1,22 @@
+package com.ermnvldmr.w.repository;
+
+import com.ermnvldmr.w.domain.MediaVariant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface MediaVariantRepository extends JpaRepository<MediaVariant, String> {
+    List<MediaVariant> findAllByMediaKey(String mediaKey);
+
+    Optional<MediaVariant> findFirstByMediaKeyAndWidthGreaterThanEqualOrderByWidthAsc(String mediaKey, int width);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO media_variant (variant_key, media_key, width, height, size) " +
+            "VALUES (?1, ?2, ?3, ?4, ?5)", nativeQuery = true)
+    void insertIgnore(String variantKey, String mediaKey, int width, int height, long size);
+}
@@ -1,14 +1,79 @@
 package com.ermnvldmr.w.repository;
 
+import com.ermnvldmr.w.dto.PostCounters;
+import com.ermnvldmr.w.dto.PostDto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Limit;
 import org.springframework.data.jpa.repository.JpaRepository;
 import com.ermnvldmr.w.domain.Post;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.Date;
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface PostRepository extends JpaRepository<Post, Long> {
-    List<Post> findAllByOrderByCreationTimeDesc();
+    @Query("SELECT new com.ermnvldmr.w.dto.PostDto(p.id, p.title, p.text, p.media, " +
+            "u.id, u.name, u.login, u.admin, u.creationTime, " +
+            "p.discussionCount, p.upvotes, p.downvotes, p.viewCount, p.creationTime) " +
+            "FROM Post p JOIN p.user u ORDER BY p.creationTime DESC, p.id DESC")
+    List<PostDto> findFeedPage(Limit limit);
 
-    @Query(value = "SELECT * FROM post WHERE user_id=?1", nativeQuery = true)
-    List<Post> findAllByUserId(Long userId);
+    @Query("SELECT new com.ermnvldmr.w.dto.PostDto(p.id, p.title, p.text, p.media, " +
+            "u.id, u.name, u.login, u.admin, u.creationTime, " +
+            "p.discussionCount, p.upvotes, p.downvotes, p.viewCount, p.creationTime) " +
+            "FROM Post p JOIN p.user u WHERE p.creationTime < ?1 OR (p.creationTime = ?1 AND p.id < ?2) " +
+            "ORDER BY p.creationTime DESC, p.id DESC")
+    List<PostDto> findFeedPageAfter(Date creationTime, long id, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    @Query("SELECT new com.ermnvldmr.w.dto.PostDto(p.id, p.title, p.text, p.media, " +
+            "u.id, u.name, u.login, u.admin, u.creationTime, " +
+            "p.discussionCount, p.upvotes, p.downvotes, p.viewCount, p.creationTime) " +
+            "FROM Post p JOIN p.user u WHERE u.id = ?1 ORDER BY p.creationTime DESC, p.id DESC")
+    Stream<PostDto> streamAllByUserId(long userId);
+
+    @Query("SELECT new com.ermnvldmr.w.dto.PostDto(p.id, p.title, p.text, p.media, " +
+            "u.id, u.name, u.login, u.admin, u.creationTime, " +
+            "p.discussionCount, p.upvotes, p.downvotes, p.viewCount, p.creationTime) " +
+            "FROM Post p JOIN p.user u WHERE p.id IN ?1")
+    List<PostDto> findAllDtoByIdIn(Collection<Long> ids);
+
+    @Query("SELECT new com.ermnvldmr.w.dto.PostCounters(p.id, p.creationTime, " +
+            "p.upvotes - p.downvotes, p.viewCount, p.discussionCount) " +
+            "FROM Post p WHERE p.creationTime > ?1 ORDER BY p.hotScore DESC, p.id DESC")
+    List<PostCounters> findHotCandidates(Date createdAfter, Limit limit);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    @Query("SELECT p.media FROM Post p WHERE p.media IS NOT NULL")
+    Stream<List<String>> streamAllMedia();
+
+    boolean existsByUserId(long userId);
+
+    @Query(value = "SELECT COALESCE(MAX(id), 0) FROM post", nativeQuery = true)
+    long findMaxId();
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE post SET upvotes=upvotes+?2, downvotes=downvotes+?3 WHERE id=?1", nativeQuery = true)
+    void addVotes(long id, long upvotes, long downvotes);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE post SET discussion_count=discussion_count+?2 WHERE id=?1", nativeQuery = true)
+    void addDiscussions(long id, long discussions);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE post p SET " +
+            "p.upvotes=(SELECT COUNT(*) FROM vote v WHERE v.post_id=p.id AND v.upvote), " +
+            "p.downvotes=(SELECT COUNT(*) FROM vote v WHERE v.post_id=p.id AND NOT v.upvote), " +
+            "p.discussion_count=(SELECT COUNT(*) FROM discussion d WHERE d.post_id=p.id) " +
+            "WHERE p.id BETWEEN ?1 AND ?2", nativeQuery = true)
+    int reconcileCounters(long fromId, long toId);
 }
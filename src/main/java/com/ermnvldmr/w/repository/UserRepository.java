@@ -1,12 +1,16 @@
 package com.ermnvldmr.w.repository;
 
+import com.ermnvldmr.w.dto.UserDto;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.transaction.annotation.Transactional;
 import com.ermnvldmr.w.domain.User;
 
-import java.util.List;
+import java.util.stream.Stream;
 
 public interface UserRepository extends JpaRepository<User, Long> {
     @Transactional
@@ -20,5 +24,8 @@ public interface UserRepository extends JpaRepository<User, Long> {
     @Query(value = "SELECT * FROM user WHERE login=?1 AND password_sha=SHA1(CONCAT(?3, ?1, ?2))", nativeQuery = true)
     User findByLoginAndPassword(String login, String password, String salt);
 
-    List<User> findAllByOrderByIdDesc();
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "256"))
+    @Query("SELECT new com.ermnvldmr.w.dto.UserDto(u.id, u.name, u.login, u.admin, u.creationTime) " +
+            "FROM User u ORDER BY u.id DESC")
+    Stream<UserDto> streamAllByOrderByIdDesc();
 }
@@ -4,11 +4,66 @@ import com.ermnvldmr.w.domain.Discussion;
 import com.ermnvldmr.w.domain.Post;
 import com.ermnvldmr.w.domain.User;
 import com.ermnvldmr.w.domain.Vote;
+import com.ermnvldmr.w.dto.VoteState;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface VoteRepository extends JpaRepository<Vote, Long> {
     Optional<Vote> findByUserAndPost(User user, Post post);
     Optional<Vote> findByUserAndDiscussion(User user, Discussion discussion);
+
+    @Query("SELECT new com.ermnvldmr.w.dto.VoteState(v.post.id, v.upvote) " +
+            "FROM Vote v WHERE v.user.id = ?1 AND v.post.id IN ?2")
+    List<VoteState> findPostVotes(long userId, Collection<Long> postIds);
+
+    @Query("SELECT new com.ermnvldmr.w.dto.VoteState(v.discussion.id, v.upvote) " +
+            "FROM Vote v WHERE v.user.id = ?1 AND v.discussion.id IN ?2")
+    List<VoteState> findDiscussionVotes(long userId, Collection<Long> discussionIds);
+
+    // Single statement steps of a vote toggle, each one's row count is unambiguous
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM vote WHERE user_id=?1 AND post_id=?2 AND upvote=?3", nativeQuery = true)
+    int deletePostVote(long userId, long postId, boolean upvote);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE vote SET upvote=?3 WHERE user_id=?1 AND post_id=?2 AND upvote<>?3", nativeQuery = true)
+    int flipPostVote(long userId, long postId, boolean upvote);
+
+    // Ignores both a concurrent duplicate and a missing post
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO vote (id, user_id, post_id, upvote) " +
+            "VALUES (NEXT VALUE FOR vote_seq, ?1, ?2, ?3)", nativeQuery = true)
+    int insertPostVote(long userId, long postId, boolean upvote);
+
+    @Query(value = "SELECT upvote FROM vote WHERE user_id=?1 AND post_id=?2", nativeQuery = true)
+    Boolean findPostUpvote(long userId, long postId);
+
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM vote WHERE user_id=?1 AND discussion_id=?2 AND upvote=?3", nativeQuery = true)
+    int deleteDiscussionVote(long userId, long discussionId, boolean upvote);
+
+    @Transactional
+    @Modifying
+    @Query(value = "UPDATE vote SET upvote=?3 WHERE user_id=?1 AND discussion_id=?2 AND upvote<>?3", nativeQuery = true)
+    int flipDiscussionVote(long userId, long discussionId, boolean upvote);
+
+    @Transactional
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO vote (id, user_id, discussion_id, upvote) " +
+            "VALUES (NEXT VALUE FOR vote_seq, ?1, ?2, ?3)", nativeQuery = true)
+    int insertDiscussionVote(long userId, long discussionId, boolean upvote);
+
+    @Query(value = "SELECT upvote FROM vote WHERE user_id=?1 AND discussion_id=?2", nativeQuery = true)
+    Boolean findDiscussionUpvote(long userId, long discussionId);
 }
@@ -0,0 +1,56 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.repository.DiscussionRepository;
+import com.ermnvldmr.w.repository.PostRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Periodically recomputes the denormalized counters from their source tables,
+ * repairing drift left by failed transactions or manual edits.
+ */
+@Component
+public class CounterReconciler {
+    private static final Logger logger = LoggerFactory.getLogger(CounterReconciler.class);
+
+    // Rows per UPDATE, keeps each statement's lock footprint small
+    private static final long BATCH_SIZE = 1000;
+
+    private final PostRepository postRepository;
+    private final DiscussionRepository discussionRepository;
+    private final HotFeedService hotFeedService;
+
+    public CounterReconciler(PostRepository postRepository,
+                             DiscussionRepository discussionRepository,
+                             HotFeedService hotFeedService) {
+        this.postRepository = postRepository;
+        this.discussionRepository = discussionRepository;
+        this.hotFeedService = hotFeedService;
+    }
+
+    @Scheduled(initialDelayString = "${config.counterReconciliationDelay}",
+            fixedDelayString = "${config.counterReconciliationInterval}")
+    public void reconcile() {
+        long posts = reconcileInBatches(postRepository.findMaxId(), postRepository::reconcileCounters);
+        long discussions = reconcileInBatches(discussionRepository.findMaxId(), discussionRepository::reconcileVotes);
+        logger.info("Reconciled counters of {} posts and {} discussions", posts, discussions);
+
+        // Rank on the repaired counters
+        hotFeedService.reload();
+    }
+
+    private long reconcileInBatches(long maxId, BatchReconciliation reconciliation) {
+        long reconciled = 0;
+        for (long fromId = 1; fromId <= maxId; fromId += BATCH_SIZE) {
+            reconciled += reconciliation.reconcile(fromId, fromId + BATCH_SIZE - 1);
+        }
+        return reconciled;
+    }
+
+    @FunctionalInterface
+    private interface BatchReconciliation {
+        int reconcile(long fromId, long toId);
+    }
+}
@@ -0,0 +1,102 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.config.PropertiesConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ViewDedupStore} shared by every node through the {@code view_dedup_entry} table,
+ * so a viewer hitting several replicas is still counted once per window.
+ * <p>
+ * A node-local {@link InMemoryViewDedupStore} sits in front of the table: repeated views
+ * this node has already counted are rejected without a database round trip.
+ */
+@Component
+@ConditionalOnProperty(prefix = "config", name = "viewDedupStore", havingValue = "database")
+public class DatabaseViewDedupStore implements ViewDedupStore {
+    private static final Logger logger = LoggerFactory.getLogger(DatabaseViewDedupStore.class);
+
+    private static final int PURGE_BATCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final InMemoryViewDedupStore nearCache;
+    private final long windowMillis;
+
+    // Counted at every purge, plus the rows this node inserted since, so metric scrapes do not scan the table
+    private final AtomicLong approximateSize = new AtomicLong();
+
+    public DatabaseViewDedupStore(PropertiesConfig propertiesConfig, JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.nearCache = new InMemoryViewDedupStore(propertiesConfig);
+        this.windowMillis = propertiesConfig.getViewDedupWindow().toMillis();
+    }
+
+    @Override
+    public boolean tryRecordView(long postId, String viewerIdentifier) {
+        long key = InMemoryViewDedupStore.viewKey(postId, viewerIdentifier);
+        if (nearCache.isRecorded(key)) {
+            return false;
+        }
+
+        boolean counted = tryRecordInDatabase(key);
+        // Recorded only once the table answered, so a failed statement does not hide the view for a window.
+        // Also remembers views another node counted first, for at most one extra window
+        nearCache.tryRecord(key);
+        return counted;
+    }
+
+    private boolean tryRecordInDatabase(long key) {
+        long now = System.currentTimeMillis();
+
+        // Both statements only touch the row if the view counts, their row counts tell whether it did
+        int refreshed = jdbcTemplate.update(
+                "UPDATE view_dedup_entry SET viewed_at=? WHERE view_key=? AND viewed_at<?",
+                now, key, now - windowMillis);
+        if (refreshed > 0) {
+            return true;
+        }
+
+        int inserted = jdbcTemplate.update(
+                "INSERT IGNORE INTO view_dedup_entry (view_key, viewed_at) VALUES (?, ?)",
+                key, now);
+        if (inserted > 0) {
+            approximateSize.incrementAndGet();
+        }
+        return inserted > 0;
+    }
+
+    /**
+     * @return row count of the table as of the last purge, plus the rows this node inserted since.
+     */
+    @Override
+    public long getSize() {
+        return approximateSize.get();
+    }
+
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void purgeExpired() {
+        nearCache.evictExpired();
+
+        long expiredBefore = System.currentTimeMillis() - windowMillis;
+        long purged = 0;
+        int deleted;
+        do {
+            deleted = jdbcTemplate.update(
+                    "DELETE FROM view_dedup_entry WHERE viewed_at<? LIMIT " + PURGE_BATCH_SIZE,
+                    expiredBefore);
+            purged += deleted;
+        } while (deleted == PURGE_BATCH_SIZE);
+
+        Long size = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM view_dedup_entry", Long.class);
+        approximateSize.set(size == null ? 0 : size);
+
+        logger.debug("Purged {} expired view dedup entries", purged);
+    }
+}
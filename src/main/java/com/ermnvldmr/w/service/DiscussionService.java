@@ -1,18 +1,49 @@
 package com.ermnvldmr.w.service;
 
-import com.ermnvldmr.w.domain.Post;
+import com.ermnvldmr.w.dto.CursorPage;
+import com.ermnvldmr.w.dto.DiscussionNode;
+import com.ermnvldmr.w.utils.Cursor;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.ermnvldmr.w.domain.Discussion;
 import com.ermnvldmr.w.repository.DiscussionRepository;
+import com.ermnvldmr.w.repository.PostRepository;
 
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
+@Timed("w.service")
 public class DiscussionService {
+    public static final int MAX_THREAD_PAGE_SIZE = 50;
+    public static final int MAX_REPLIES_PER_DISCUSSION = 20;
+    public static final int MAX_THREAD_DEPTH = 5;
+
+    // Positions before every discussion, used when paging starts from the beginning
+    private static final Cursor NEWEST_FIRST = Cursor.ofTime(new Date(253402214400000L), Long.MAX_VALUE); // 9999-12-31
+    private static final Cursor TOP_FIRST = new Cursor(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    public enum Sort {
+        NEW, TOP
+    }
+
     private final DiscussionRepository discussionRepository;
+    private final PostRepository postRepository;
+    private final HotFeedService hotFeedService;
 
-    public DiscussionService(DiscussionRepository discussionRepository) {
+    public DiscussionService(DiscussionRepository discussionRepository,
+                             PostRepository postRepository,
+                             HotFeedService hotFeedService) {
         this.discussionRepository = discussionRepository;
+        this.postRepository = postRepository;
+        this.hotFeedService = hotFeedService;
     }
 
     public Discussion findById(long id) {
@@ -21,12 +52,144 @@ public class DiscussionService {
 
     public List<Discussion> findAllByPostId(long postId) { return discussionRepository.findAllByPostId(postId); }
 
+    public List<DiscussionNode> findThreadByPostId(long postId) {
+        List<Discussion> discussions = discussionRepository.findAllByPostId(postId);
+
+        Map<Long, DiscussionNode> nodes = new HashMap<>();
+        for (Discussion discussion : discussions) {
+            nodes.put(discussion.getId(), new DiscussionNode(discussion));
+        }
+
+        List<DiscussionNode> roots = new ArrayList<>();
+        for (Discussion discussion : discussions) {
+            DiscussionNode node = nodes.get(discussion.getId());
+            DiscussionNode parent = discussion.getParentDiscussionId() == null
+                    ? null : nodes.get(discussion.getParentDiscussionId());
+            if (parent == null) {
+                roots.add(node);
+            } else {
+                parent.getReplies().add(node);
+            }
+        }
+
+        return roots;
+    }
+
+    /**
+     * Pages through the discussions directly under {@code parentId} (top-level ones when it's null),
+     * each coming with up to {@code repliesPerDiscussion} replies, {@code depth} levels deep.
+     * Costs one query per level regardless of the page size.
+     */
+    public CursorPage<DiscussionNode> findThreadPage(long postId, Long parentId, Sort sort, Cursor after,
+                                                     int limit, int repliesPerDiscussion, int depth) {
+        int pageSize = Math.clamp(limit, 1, MAX_THREAD_PAGE_SIZE);
+        int replies = Math.clamp(repliesPerDiscussion, 0, MAX_REPLIES_PER_DISCUSSION);
+        int levels = Math.clamp(depth, 1, MAX_THREAD_DEPTH);
+
+        List<Discussion> discussions = parentId == null
+                ? findTopLevel(postId, sort, after, pageSize + 1)
+                : findReplies(postId, List.of(parentId), sort, after, pageSize + 1);
+        CursorPage<Discussion> page = CursorPage.of(discussions, pageSize, discussion -> cursorOf(discussion, sort));
+
+        List<DiscussionNode> nodes = page.getItems().stream().map(DiscussionNode::new).toList();
+
+        List<DiscussionNode> level = nodes;
+        for (int i = 1; i < levels && replies > 0 && !level.isEmpty(); ++i) {
+            level = attachReplies(postId, level, sort, replies);
+        }
+        markDiscussionsWithReplies(postId, level);
+
+        return new CursorPage<>(nodes, page.getNextCursor());
+    }
+
+    private List<DiscussionNode> attachReplies(long postId, List<DiscussionNode> parents, Sort sort, int replies) {
+        Map<Long, List<Discussion>> repliesByParent = new HashMap<>();
+        List<Long> parentIds = parents.stream().map(parent -> parent.getDiscussion().getId()).toList();
+        for (Discussion reply : findReplies(postId, parentIds, sort, null, replies + 1)) {
+            repliesByParent.computeIfAbsent(reply.getParentDiscussionId(), id -> new ArrayList<>()).add(reply);
+        }
+
+        List<DiscussionNode> nextLevel = new ArrayList<>();
+        for (DiscussionNode parent : parents) {
+            List<Discussion> parentReplies = repliesByParent.getOrDefault(parent.getDiscussion().getId(), List.of());
+            CursorPage<Discussion> page = CursorPage.of(parentReplies, replies, reply -> cursorOf(reply, sort));
+
+            for (Discussion reply : page.getItems()) {
+                DiscussionNode node = new DiscussionNode(reply);
+                parent.getReplies().add(node);
+                nextLevel.add(node);
+            }
+            parent.setMoreReplies(page.getNextCursor() != null);
+            parent.setRepliesCursor(page.getNextCursor());
+        }
+
+        return nextLevel;
+    }
+
+    private void markDiscussionsWithReplies(long postId, List<DiscussionNode> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = nodes.stream().map(node -> node.getDiscussion().getId()).toList();
+        Set<Long> withReplies = new HashSet<>(discussionRepository.findParentIdsWithReplies(postId, ids));
+        for (DiscussionNode node : nodes) {
+            node.setMoreReplies(withReplies.contains(node.getDiscussion().getId()));
+        }
+    }
+
+    private List<Discussion> findTopLevel(long postId, Sort sort, Cursor after, int limit) {
+        return switch (sort) {
+            case NEW -> {
+                Cursor position = after == null ? NEWEST_FIRST : after;
+                yield discussionRepository.findTopLevelNewestAfter(postId, position.getTime(), position.getId(),
+                        Limit.of(limit));
+            }
+            case TOP -> {
+                Cursor position = after == null ? TOP_FIRST : after;
+                yield discussionRepository.findTopLevelTopAfter(postId, position.getPosition(), position.getId(),
+                        Limit.of(limit));
+            }
+        };
+    }
+
+    private List<Discussion> findReplies(long postId, List<Long> parentIds, Sort sort, Cursor after, int perParent) {
+        return switch (sort) {
+            case NEW -> {
+                Cursor position = after == null ? NEWEST_FIRST : after;
+                yield discussionRepository.findRepliesNewestAfter(postId, parentIds, position.getTime(),
+                        position.getId(), perParent);
+            }
+            case TOP -> {
+                Cursor position = after == null ? TOP_FIRST : after;
+                yield discussionRepository.findRepliesTopAfter(postId, parentIds, position.getPosition(),
+                        position.getId(), perParent);
+            }
+        };
+    }
+
+    private static Cursor cursorOf(Discussion discussion, Sort sort) {
+        return switch (sort) {
+            case NEW -> Cursor.ofTime(discussion.getCreationTime(), discussion.getId());
+            case TOP -> new Cursor(discussion.getVoteCount(), discussion.getId());
+        };
+    }
+
+    @Transactional
     public Discussion writeDiscussion(Discussion discussion) {
-        return discussionRepository.save(discussion);
+        Discussion savedDiscussion = discussionRepository.save(discussion);
+        postRepository.addDiscussions(savedDiscussion.getPostId(), 1);
+        hotFeedService.onDiscussion(savedDiscussion.getPostId(), 1);
+        return savedDiscussion;
     }
 
+    @Transactional
     public void deleteDiscussionById(long id) {
-        discussionRepository.deleteById(id);
+        discussionRepository.findById(id).ifPresent(discussion -> {
+            discussionRepository.delete(discussion);
+            postRepository.addDiscussions(discussion.getPostId(), -1);
+            hotFeedService.onDiscussion(discussion.getPostId(), -1);
+        });
     }
 
     public List<Discussion> findAllByUserId(Long userId) {
@@ -0,0 +1,306 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.config.PropertiesConfig;
+import com.ermnvldmr.w.dto.PostCounters;
+import com.ermnvldmr.w.dto.PostDto;
+import com.ermnvldmr.w.repository.PostRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Limit;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * Ranks recent posts by a hot score kept in memory and updated on every vote, view and
+ * discussion, so the top of the feed is read off a sorted set instead of scanning posts.
+ * <p>
+ * The score is {@code sign(e) * log10(max(|e|, 1)) + (created - epoch) / 45000} where
+ * {@code e} weighs votes, views and discussions. Each tenfold of engagement is worth
+ * 12.5 hours of recency, so a post's score never has to be recomputed as time passes.
+ */
+@Service
+public class HotFeedService {
+    private static final Logger logger = LoggerFactory.getLogger(HotFeedService.class);
+
+    private static final long EPOCH_SECONDS = 1_704_067_200L;  // 2024-01-01T00:00:00Z
+    private static final double DECAY_SECONDS = 45_000;
+    private static final double VIEW_WEIGHT = 0.02;
+    private static final double DISCUSSION_WEIGHT = 0.5;
+
+    private static final Comparator<HotEntry> RANKING_ORDER = Comparator
+            .comparingDouble(HotEntry::score).reversed()
+            .thenComparing(Comparator.comparingLong(HotEntry::postId).reversed());
+
+    private final PropertiesConfig propertiesConfig;
+    private final PostRepository postRepository;
+    private final ViewCounter viewCounter;
+    private final JdbcTemplate jdbcTemplate;
+
+    private volatile Ranking ranking = new Ranking();
+
+    // Events hold the read lock, so that none is in progress while a reload swaps the ranking
+    private final ReentrantReadWriteLock rankingLock = new ReentrantReadWriteLock();
+    // Events since a reload started reading the posts, replayed onto the reloaded ranking
+    private Queue<Consumer<Ranking>> reloadLog;
+    private final ReentrantLock reloadLock = new ReentrantLock();
+
+    // Posts whose hot_score column is behind the in-memory score
+    private final Set<Long> dirtyPosts = ConcurrentHashMap.newKeySet();
+
+    private final ReentrantLock checkpointLock = new ReentrantLock();
+
+    public HotFeedService(PropertiesConfig propertiesConfig,
+                          PostRepository postRepository,
+                          ViewCounter viewCounter,
+                          JdbcTemplate jdbcTemplate) {
+        this.propertiesConfig = propertiesConfig;
+        this.postRepository = postRepository;
+        this.viewCounter = viewCounter;
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public static double score(long votes, long views, long discussions, Instant creationTime) {
+        double engagement = votes + VIEW_WEIGHT * views + DISCUSSION_WEIGHT * discussions;
+        double order = Math.log10(Math.max(Math.abs(engagement), 1));
+        return Math.signum(engagement) * order + (creationTime.getEpochSecond() - EPOCH_SECONDS) / DECAY_SECONDS;
+    }
+
+    public int size() {
+        return ranking.entries.size();
+    }
+
+    /**
+     * @return the highest ranked posts, best first.
+     */
+    public List<PostDto> findTop(int limit) {
+        List<Long> ids = new ArrayList<>(limit);
+        Iterator<HotEntry> iterator = ranking.ordered.iterator();
+        while (ids.size() < limit && iterator.hasNext()) {
+            ids.add(iterator.next().postId());
+        }
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+
+        Map<Long, PostDto> posts = new HashMap<>();
+        for (PostDto post : postRepository.findAllDtoByIdIn(ids)) {
+            posts.put(post.getId(), post);
+        }
+
+        List<PostDto> top = new ArrayList<>(ids.size());
+        for (long id : ids) {
+            PostDto post = posts.get(id);
+            if (post != null) {
+                top.add(post);
+            }
+        }
+        return top;
+    }
+
+    public void onPostCreated(long postId, Date creationTime) {
+        HotEntry entry = new HotEntry(postId, creationTime.toInstant(), 0, 0, 0);
+        apply(current -> {
+            if (current.entries.putIfAbsent(postId, entry) == null) {
+                current.ordered.add(entry);
+                dirtyPosts.add(postId);
+                current.trim(propertiesConfig.getHotFeedMaxEntries());
+            }
+        });
+    }
+
+    public void onPostDeleted(long postId) {
+        apply(current -> {
+            HotEntry entry = current.entries.remove(postId);
+            if (entry != null) {
+                current.ordered.remove(entry);
+            }
+            dirtyPosts.remove(postId);
+        });
+    }
+
+    public void onVote(long postId, long voteDelta) {
+        update(postId, entry -> entry.with(entry.votes() + voteDelta, entry.views(), entry.discussions()));
+    }
+
+    public void onView(long postId) {
+        update(postId, entry -> entry.with(entry.votes(), entry.views() + 1, entry.discussions()));
+    }
+
+    public void onDiscussion(long postId, long discussionDelta) {
+        update(postId, entry -> entry.with(entry.votes(), entry.views(), entry.discussions() + discussionDelta));
+    }
+
+    // Posts outside the ranking are too old or too cold to enter it from a single event
+    private void update(long postId, UnaryOperator<HotEntry> change) {
+        apply(current -> current.entries.computeIfPresent(postId, (id, entry) -> {
+            HotEntry updated = change.apply(entry);
+            current.ordered.remove(entry);
+            current.ordered.add(updated);
+            dirtyPosts.add(id);
+            return updated;
+        }));
+    }
+
+    private void apply(Consumer<Ranking> event) {
+        rankingLock.readLock().lock();
+        try {
+            event.accept(ranking);
+            if (reloadLog != null) {
+                reloadLog.add(event);
+            }
+        } finally {
+            rankingLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Rebuilds the ranking from the post counters, picking up changes made behind its back.
+     * Events that come in while the posts are read are replayed onto the new ranking, the
+     * counters read may not include them yet.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void reload() {
+        reloadLock.lock();
+        try {
+            int maxEntries = propertiesConfig.getHotFeedMaxEntries();
+            Date createdAfter = Date.from(Instant.now().minus(propertiesConfig.getHotFeedWindow()));
+
+            Queue<Consumer<Ranking>> log = new ConcurrentLinkedQueue<>();
+            setReloadLog(log);
+
+            Ranking reloaded = new Ranking();
+            try {
+                for (PostCounters counters : postRepository.findHotCandidates(createdAfter, Limit.of(maxEntries))) {
+                    HotEntry entry = new HotEntry(counters.getId(), counters.getCreationTime().toInstant(),
+                            counters.getVoteCount(),
+                            counters.getViewCount() + viewCounter.getPendingViews(counters.getId()),
+                            counters.getDiscussionCount());
+                    reloaded.entries.put(entry.postId(), entry);
+                    reloaded.ordered.add(entry);
+                    dirtyPosts.add(entry.postId());
+                }
+            } catch (RuntimeException e) {
+                setReloadLog(null);
+                throw e;
+            }
+
+            rankingLock.writeLock().lock();
+            try {
+                for (Consumer<Ranking> event : log) {
+                    event.accept(reloaded);
+                }
+                ranking = reloaded;
+                reloadLog = null;
+            } finally {
+                rankingLock.writeLock().unlock();
+            }
+            logger.info("Loaded {} posts into the hot feed, replayed {} events", reloaded.entries.size(), log.size());
+        } finally {
+            reloadLock.unlock();
+        }
+    }
+
+    private void setReloadLog(Queue<Consumer<Ranking>> log) {
+        rankingLock.writeLock().lock();
+        try {
+            reloadLog = log;
+        } finally {
+            rankingLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes changed scores to {@code post.hot_score}, so that a restart loads the right
+     * posts, and drops posts that aged out of the window.
+     */
+    @Scheduled(fixedDelayString = "${config.hotFeedCheckpointInterval}")
+    @PreDestroy
+    public void checkpoint() {
+        checkpointLock.lock();
+        try {
+            Ranking current = ranking;
+
+            Instant createdAfter = Instant.now().minus(propertiesConfig.getHotFeedWindow());
+            for (HotEntry entry : current.entries.values()) {
+                if (entry.creationTime().isBefore(createdAfter) && current.entries.remove(entry.postId(), entry)) {
+                    current.ordered.remove(entry);
+                }
+            }
+
+            List<Object[]> batch = new ArrayList<>();
+            for (Iterator<Long> iterator = dirtyPosts.iterator(); iterator.hasNext(); ) {
+                long postId = iterator.next();
+                iterator.remove();
+                HotEntry entry = current.entries.get(postId);
+                if (entry != null) {
+                    batch.add(new Object[]{entry.score(), postId});
+                }
+            }
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                jdbcTemplate.batchUpdate("UPDATE post SET hot_score=? WHERE id=?", batch);
+                logger.debug("Checkpointed hot scores of {} posts", batch.size());
+            } catch (DataAccessException e) {
+                for (Object[] args : batch) {
+                    dirtyPosts.add((Long) args[1]);
+                }
+                logger.warn("Failed to checkpoint hot scores of {} posts", batch.size(), e);
+            }
+        } finally {
+            checkpointLock.unlock();
+        }
+    }
+
+    private static final class Ranking {
+        private final Map<Long, HotEntry> entries = new ConcurrentHashMap<>();
+        private final NavigableSet<HotEntry> ordered = new ConcurrentSkipListSet<>(RANKING_ORDER);
+
+        private void trim(int maxEntries) {
+            while (entries.size() > maxEntries) {
+                HotEntry last = ordered.pollLast();
+                if (last == null) {
+                    return;
+                }
+                entries.remove(last.postId(), last);
+            }
+        }
+    }
+
+    private record HotEntry(long postId, Instant creationTime, long votes, long views, long discussions, double score) {
+        private HotEntry(long postId, Instant creationTime, long votes, long views, long discussions) {
+            this(postId, creationTime, votes, views, discussions, HotFeedService.score(votes, views, discussions, creationTime));
+        }
+
+        private HotEntry with(long votes, long views, long discussions) {
+            return new HotEntry(postId, creationTime, votes, views, discussions);
+        }
+    }
+}
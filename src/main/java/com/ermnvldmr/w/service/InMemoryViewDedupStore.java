@@ -0,0 +1,205 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.config.PropertiesConfig;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-node {@link ViewDedupStore}, remembers which viewer has seen which post within the dedup window.
+ * <p>
+ * (post, viewer) pairs are hashed into a single {@code long} and kept in
+ * fixed-size primitive arrays, so memory use is capped at roughly 32 bytes
+ * per entry no matter how much traffic comes in. Entries expire in the order
+ * they were recorded; when a stripe is full its oldest entry is evicted early.
+ */
+@Component
+@ConditionalOnProperty(prefix = "config", name = "viewDedupStore", havingValue = "memory", matchIfMissing = true)
+public class InMemoryViewDedupStore implements ViewDedupStore {
+    private static final int STRIPES = 16;
+
+    private final long windowNanos;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+
+    private final LongAdder expiredEvictions = new LongAdder();
+    private final LongAdder capacityEvictions = new LongAdder();
+
+    public InMemoryViewDedupStore(PropertiesConfig propertiesConfig) {
+        this.windowNanos = propertiesConfig.getViewDedupWindow().toNanos();
+
+        int stripeCapacity = Math.max(1, propertiesConfig.getViewDedupMaxEntries() / STRIPES);
+        for (int i = 0; i < STRIPES; ++i) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+    }
+
+    @Override
+    public boolean tryRecordView(long postId, String viewerIdentifier) {
+        return tryRecord(viewKey(postId, viewerIdentifier));
+    }
+
+    boolean tryRecord(long key) {
+        return stripeOf(key).tryRecord(key, System.nanoTime());
+    }
+
+    /**
+     * @return whether the key was recorded within the window, without recording it.
+     */
+    boolean isRecorded(long key) {
+        return stripeOf(key).isRecorded(key, System.nanoTime());
+    }
+
+    private Stripe stripeOf(long key) {
+        return stripes[(int) (key >>> 32) & (STRIPES - 1)];
+    }
+
+    // Stripes expire lazily on access, this keeps idle ones from holding stale entries
+    @Scheduled(fixedDelay = 1, timeUnit = TimeUnit.MINUTES)
+    public void evictExpired() {
+        long now = System.nanoTime();
+        for (Stripe stripe : stripes) {
+            stripe.evictExpired(now);
+        }
+    }
+
+    @Override
+    public long getSize() {
+        long size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    public long getExpiredEvictions() {
+        return expiredEvictions.sum();
+    }
+
+    public long getCapacityEvictions() {
+        return capacityEvictions.sum();
+    }
+
+    static long viewKey(long postId, String viewerIdentifier) {
+        // FNV-1a over the viewer, seeded with the post, finished with the MurmurHash3 mixer
+        long hash = 0xcbf29ce484222325L ^ postId;
+        for (int i = 0; i < viewerIdentifier.length(); ++i) {
+            hash = (hash ^ viewerIdentifier.charAt(i)) * 0x100000001b3L;
+        }
+        hash = mix(hash);
+        return hash == 0 ? 1 : hash; // 0 marks an empty slot
+    }
+
+    private static long mix(long hash) {
+        hash = (hash ^ (hash >>> 33)) * 0xff51afd7ed558ccdL;
+        hash = (hash ^ (hash >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return hash ^ (hash >>> 33);
+    }
+
+    /**
+     * Ring buffer of keys in recording order, indexed by an open-addressing hash set.
+     */
+    private final class Stripe {
+        private final long[] ringKeys;
+        private final long[] ringTimes;
+        private int head = 0;
+        private int size = 0;
+
+        private final long[] slots;
+        private final int mask;
+
+        private Stripe(int capacity) {
+            this.ringKeys = new long[capacity];
+            this.ringTimes = new long[capacity];
+            // Power of two, at least twice the capacity to keep probe sequences short
+            this.slots = new long[Integer.highestOneBit(2 * capacity - 1) << 1];
+            this.mask = slots.length - 1;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private synchronized boolean tryRecord(long key, long now) {
+            evictExpired(now);
+
+            if (contains(key)) {
+                return false;
+            }
+
+            if (size == ringKeys.length) {
+                evictHead();
+                capacityEvictions.increment();
+            }
+
+            int tail = (head + size) % ringKeys.length;
+            ringKeys[tail] = key;
+            ringTimes[tail] = now;
+            ++size;
+            insert(key);
+            return true;
+        }
+
+        private synchronized boolean isRecorded(long key, long now) {
+            evictExpired(now);
+            return contains(key);
+        }
+
+        private synchronized void evictExpired(long now) {
+            while (size > 0 && now - ringTimes[head] > windowNanos) {
+                evictHead();
+                expiredEvictions.increment();
+            }
+        }
+
+        private void evictHead() {
+            remove(ringKeys[head]);
+            head = (head + 1) % ringKeys.length;
+            --size;
+        }
+
+        private boolean contains(long key) {
+            for (int i = home(key); slots[i] != 0; i = (i + 1) & mask) {
+                if (slots[i] == key) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void insert(long key) {
+            int i = home(key);
+            while (slots[i] != 0) {
+                i = (i + 1) & mask;
+            }
+            slots[i] = key;
+        }
+
+        private void remove(long key) {
+            int hole = home(key);
+            while (slots[hole] != key) {
+                if (slots[hole] == 0) {
+                    return;
+                }
+                hole = (hole + 1) & mask;
+            }
+
+            // Shift back the following entries whose probe sequence crosses the hole
+            for (int i = (hole + 1) & mask; slots[i] != 0; i = (i + 1) & mask) {
+                int home = home(slots[i]);
+                boolean crossesHole = i > hole ? (home <= hole || home > i) : (home <= hole && home > i);
+                if (crossesHole) {
+                    slots[hole] = slots[i];
+                    hole = i;
+                }
+            }
+            slots[hole] = 0;
+        }
+
+        private int home(long key) {
+            return (int) key & mask;
+        }
+    }
+}
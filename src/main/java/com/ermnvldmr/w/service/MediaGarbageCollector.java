@@ -0,0 +1,330 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.config.PropertiesConfig;
+import com.ermnvldmr.w.domain.MediaVariant;
+import com.ermnvldmr.w.repository.MediaObjectRepository;
+import com.ermnvldmr.w.repository.MediaVariantRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Deletes media files no post references anymore. Every run walks the next few
+ * {@code <2 hex>/<2 hex>} shard directories of the media and variant stores, checks the
+ * files found there against {@code media_object} reference counts a batch at a time, and
+ * removes those left unreferenced for longer than the grace period. Once all shards are
+ * done, stale temporary files and, at most once per {@code config.mediaGcLegacyInterval},
+ * the flat directory of pre-content-addressing uploads are swept, and the walk starts over.
+ */
+@Component
+public class MediaGarbageCollector {
+    private static final Logger logger = LoggerFactory.getLogger(MediaGarbageCollector.class);
+
+    private static final int SHARD_COUNT = 256 * 256;
+
+    private final PropertiesConfig propertiesConfig;
+    private final MediaService mediaService;
+    private final MediaVariantService mediaVariantService;
+    private final PostService postService;
+    private final MediaObjectRepository mediaObjectRepository;
+    private final MediaVariantRepository mediaVariantRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    // Next shard to walk, SHARD_COUNT stands for the legacy and temporary file sweep
+    private int nextShard = 0;
+
+    // State of the last legacy sweep, which reads the media lists of all posts
+    private Instant lastLegacySweep = Instant.MIN;
+    private Set<String> fruitlessLegacyKeys = null;
+    private long releasedLegacyKeysAtSweep = 0;
+
+    private final ReentrantLock collectLock = new ReentrantLock();
+
+    private final LongAdder deletedFiles = new LongAdder();
+    private final LongAdder reclaimedBytes = new LongAdder();
+    private final LongAdder orphanedFiles = new LongAdder();
+
+    public MediaGarbageCollector(PropertiesConfig propertiesConfig,
+                                 MediaService mediaService,
+                                 MediaVariantService mediaVariantService,
+                                 PostService postService,
+                                 MediaObjectRepository mediaObjectRepository,
+                                 MediaVariantRepository mediaVariantRepository,
+                                 TransactionTemplate transactionTemplate) {
+        this.propertiesConfig = propertiesConfig;
+        this.mediaService = mediaService;
+        this.mediaVariantService = mediaVariantService;
+        this.postService = postService;
+        this.mediaObjectRepository = mediaObjectRepository;
+        this.mediaVariantRepository = mediaVariantRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    public long getDeletedFiles() {
+        return deletedFiles.sum();
+    }
+
+    public long getReclaimedBytes() {
+        return reclaimedBytes.sum();
+    }
+
+    /**
+     * @return orphans found so far, including the ones a dry run left in place.
+     */
+    public long getOrphanedFiles() {
+        return orphanedFiles.sum();
+    }
+
+    @Scheduled(initialDelayString = "${config.mediaGcDelay}",
+            fixedDelayString = "${config.mediaGcInterval}")
+    public void collect() {
+        collectLock.lock();
+        try {
+            if (!Files.isDirectory(mediaService.getMediaDir())) {
+                return;
+            }
+
+            int batchSize = propertiesConfig.getMediaGcBatchSize();
+            Instant cutoff = Instant.now().minus(propertiesConfig.getMediaGcGracePeriod());
+            long deletedBefore = getDeletedFiles();
+            long orphanedBefore = getOrphanedFiles();
+
+            int scanned = 0;
+            int shards = 0;
+            try {
+                // Whole shards per run until the batch budget is spent, there are few files in each
+                while (scanned < batchSize && shards < SHARD_COUNT) {
+                    if (nextShard == SHARD_COUNT) {
+                        scanned += sweepLegacy(cutoff);
+                        scanned += sweepTemporary(cutoff);
+                        nextShard = 0;
+                        break;
+                    }
+
+                    String shard = String.format("%02x/%02x", nextShard >> 8, nextShard & 0xff);
+                    scanned += collectMedia(mediaService.getMediaDir().resolve(shard), cutoff, batchSize);
+                    scanned += collectVariants(mediaVariantService.getVariantDir().resolve(shard), cutoff, batchSize);
+                    ++nextShard;
+                    ++shards;
+                }
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Media garbage collection stopped at shard {}", nextShard, e);
+            }
+
+            long orphaned = getOrphanedFiles() - orphanedBefore;
+            if (orphaned > 0) {
+                logger.info("Media garbage collection scanned {} files, found {} orphans, deleted {}{}",
+                        scanned, orphaned, getDeletedFiles() - deletedBefore,
+                        propertiesConfig.isMediaGcDryRun() ? " (dry run)" : "");
+            }
+        } finally {
+            collectLock.unlock();
+        }
+    }
+
+    private int collectMedia(Path shard, Instant cutoff, int batchSize) throws IOException {
+        return forEachBatch(shard, cutoff, batchSize, batch -> {
+            Set<String> orphans = new HashSet<>(batch.keySet());
+            mediaObjectRepository.findLiveKeys(batch.keySet(), Date.from(cutoff)).forEach(orphans::remove);
+            for (String orphan : orphans) {
+                collectOrphan(orphan, batch.get(orphan), cutoff);
+            }
+        });
+    }
+
+    /**
+     * Deletes the {@code media_object} row of an orphan, then its files while the deleted row is
+     * still locked. An upload of the same content waits for that lock in
+     * {@link MediaService#addReferences} and stores the file again. Files no post ever
+     * referenced have no row, an unreferenced one is inserted first to lock.
+     */
+    private void collectOrphan(String key, Path file, Instant cutoff) throws IOException {
+        if (propertiesConfig.isMediaGcDryRun()) {
+            delete(file, cutoff);
+            for (MediaVariant variant : mediaVariantRepository.findAllByMediaKey(key)) {
+                delete(mediaVariantService.resolve(variant.getVariantKey()), null);
+            }
+            return;
+        }
+
+        Date releasedBefore = Date.from(cutoff);
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                mediaObjectRepository.insertUnreferenced(key, releasedBefore);
+                if (mediaObjectRepository.deleteUnreferenced(List.of(key), releasedBefore) == 0) {
+                    // Referenced again since it was found
+                    return;
+                }
+
+                List<MediaVariant> variants = mediaVariantRepository.findAllByMediaKey(key);
+                mediaVariantRepository.deleteAllByIdInBatch(variants.stream().map(MediaVariant::getVariantKey).toList());
+                try {
+                    // A fresh modification time means an upload is about to reference it, spare it the copy
+                    delete(file, cutoff);
+                    for (MediaVariant variant : variants) {
+                        delete(mediaVariantService.resolve(variant.getVariantKey()), null);
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Removes variant files left without a {@code media_variant} row by a failed generation.
+     */
+    private int collectVariants(Path shard, Instant cutoff, int batchSize) throws IOException {
+        return forEachBatch(shard, cutoff, batchSize, batch -> {
+            Set<String> orphans = new HashSet<>(batch.keySet());
+            mediaVariantRepository.findAllById(batch.keySet()).forEach(variant -> orphans.remove(variant.getVariantKey()));
+            for (String orphan : orphans) {
+                delete(batch.get(orphan), cutoff);
+            }
+        });
+    }
+
+    /**
+     * Old-style uploads have no {@code media_object} row, so they are checked against the
+     * media lists of all posts. There is a bounded number of them, no new ones are written.
+     * Since that reads the whole post table, the sweep runs at most once per legacy interval,
+     * and after a sweep that found nothing only once a post releasing a legacy file was
+     * deleted or more legacy files got past the grace period.
+     */
+    private int sweepLegacy(Instant cutoff) throws IOException {
+        Instant now = Instant.now();
+        if (now.isBefore(lastLegacySweep.plus(propertiesConfig.getMediaGcLegacyInterval()))) {
+            return 0;
+        }
+
+        Map<String, Path> legacy = list(mediaService.getMediaDir(),
+                key -> MediaService.isValidKey(key) && !MediaService.isContentAddressed(key), cutoff);
+        long releasedLegacyKeys = mediaService.getReleasedLegacyKeys();
+        if (legacy.isEmpty() || (legacy.keySet().equals(fruitlessLegacyKeys)
+                && releasedLegacyKeys == releasedLegacyKeysAtSweep)) {
+            return 0;
+        }
+
+        Set<String> orphans = new HashSet<>(legacy.keySet());
+        postService.forEachMedia(media -> media.forEach(orphans::remove));
+        for (String orphan : orphans) {
+            delete(legacy.get(orphan), cutoff);
+        }
+
+        lastLegacySweep = now;
+        releasedLegacyKeysAtSweep = releasedLegacyKeys;
+        fruitlessLegacyKeys = orphans.isEmpty() ? legacy.keySet() : null;
+        return legacy.size();
+    }
+
+    /**
+     * Removes leftovers of uploads and variant encodings interrupted by a crash.
+     */
+    private int sweepTemporary(Instant cutoff) throws IOException {
+        Map<String, Path> temporary = list(mediaService.getTemporaryDir(), key -> true, cutoff);
+        for (Path file : temporary.values()) {
+            delete(file, cutoff);
+        }
+        return temporary.size();
+    }
+
+    private int forEachBatch(Path dir, Instant cutoff, int batchSize, BatchAction action) throws IOException {
+        Map<String, Path> files = list(dir, key -> true, cutoff);
+
+        Map<String, Path> batch = new HashMap<>();
+        for (Map.Entry<String, Path> file : files.entrySet()) {
+            batch.put(file.getKey(), file.getValue());
+            if (batch.size() == batchSize) {
+                action.collect(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            action.collect(batch);
+        }
+
+        return files.size();
+    }
+
+    /**
+     * @return regular files of the directory last modified before the cutoff, by name.
+     */
+    private static Map<String, Path> list(Path dir, Predicate<String> filter, Instant cutoff) throws IOException {
+        Map<String, Path> files = new HashMap<>();
+        if (!Files.isDirectory(dir)) {
+            return files;
+        }
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+            for (Path file : stream) {
+                String name = file.getFileName().toString();
+                if (!filter.test(name)) {
+                    continue;
+                }
+
+                BasicFileAttributes attributes = readAttributes(file);
+                if (attributes != null && attributes.isRegularFile()
+                        && attributes.lastModifiedTime().toInstant().isBefore(cutoff)) {
+                    files.put(name, file);
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * @param cutoff when set, the file is kept if it was touched after this instant in the meantime.
+     */
+    private void delete(Path file, Instant cutoff) throws IOException {
+        BasicFileAttributes attributes = readAttributes(file);
+        if (attributes == null || (cutoff != null && !attributes.lastModifiedTime().toInstant().isBefore(cutoff))) {
+            return;
+        }
+
+        orphanedFiles.increment();
+        if (propertiesConfig.isMediaGcDryRun()) {
+            logger.info("Media garbage collection would delete {} ({} bytes)", file, attributes.size());
+            return;
+        }
+
+        if (Files.deleteIfExists(file)) {
+            deletedFiles.increment();
+            reclaimedBytes.add(attributes.size());
+        }
+    }
+
+    private static BasicFileAttributes readAttributes(Path file) throws IOException {
+        try {
+            return Files.readAttributes(file, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+    }
+
+    @FunctionalInterface
+    private interface BatchAction {
+        void collect(Map<String, Path> batch) throws IOException;
+    }
+}
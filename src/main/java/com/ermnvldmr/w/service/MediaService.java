@@ -0,0 +1,291 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.config.PropertiesConfig;
+import com.ermnvldmr.w.repository.MediaObjectRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Content-addressed media store. A file is keyed by the SHA-256 of its content plus
+ * its extension and lives under {@code mediaDir/<2 hex>/<2 hex>/<key>}, so identical
+ * uploads are stored once and shared, reference counted through {@code media_object}.
+ */
+@Service
+public class MediaService {
+    private static final long TRANSFER_CHUNK_SIZE = 1 << 20;
+
+    private static final Pattern KEY_PATTERN = Pattern.compile("[0-9a-f]{64}(\\.[a-z0-9]{1,10})?");
+    private static final Pattern EXTENSION_PATTERN = Pattern.compile("\\.[a-z0-9]{1,10}");
+    // Keys of files uploaded before content addressing: "<post id>_<index><extension>"
+    private static final Pattern LEGACY_KEY_PATTERN = Pattern.compile("[0-9]+_[0-9]+(\\.[A-Za-z0-9]{1,10})?");
+
+    private final PropertiesConfig propertiesConfig;
+    private final MediaObjectRepository mediaObjectRepository;
+
+    private final ExecutorService uploadExecutor;
+
+    private final LongAdder releasedLegacyKeys = new LongAdder();
+
+    public MediaService(PropertiesConfig propertiesConfig,
+                        MediaObjectRepository mediaObjectRepository,
+                        Environment environment) {
+        this.propertiesConfig = propertiesConfig;
+        this.mediaObjectRepository = mediaObjectRepository;
+        // Uploads block on disk writes, a virtual thread per file costs nothing while it waits
+        this.uploadExecutor = Threading.VIRTUAL.isActive(environment)
+                ? Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("media-upload-", 0).factory())
+                : Executors.newFixedThreadPool(propertiesConfig.getMediaUploadThreads(),
+                        Thread.ofPlatform().name("media-upload-", 0).daemon().factory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        uploadExecutor.shutdown();
+    }
+
+    public Path getTemporaryDir() {
+        return getMediaDir().resolve(".tmp");
+    }
+
+    public Path getMediaDir() {
+        return Paths.get(propertiesConfig.getMediaDir());
+    }
+
+    public static boolean isValidKey(String key) {
+        return KEY_PATTERN.matcher(key).matches() || LEGACY_KEY_PATTERN.matcher(key).matches();
+    }
+
+    public static boolean isContentAddressed(String key) {
+        return KEY_PATTERN.matcher(key).matches();
+    }
+
+    /**
+     * @return location of the media file, also for keys stored before content addressing.
+     */
+    public Path resolve(String key) {
+        if (!isContentAddressed(key)) {
+            return getMediaDir().resolve(key);
+        }
+        return getMediaDir().resolve(key.substring(0, 2)).resolve(key.substring(2, 4)).resolve(key);
+    }
+
+    /**
+     * Streams the uploaded files into the store concurrently. Runs outside of any transaction,
+     * copying and hashing large uploads must not hold a database connection. The files stay
+     * unreferenced, and eventually garbage collected, until {@link #addReferences} commits.
+     *
+     * @return keys of the stored files, in upload order.
+     * @throws MediaTooLargeException if a file or all of them together exceed the configured limits.
+     */
+    public List<String> storeAll(List<MultipartFile> media) throws IOException {
+        List<String> keys = new ArrayList<>();
+
+        if (media == null || media.isEmpty()) {
+            return keys;
+        }
+
+        checkSizes(media);
+
+        Path temporaryDir = getTemporaryDir();
+        Files.createDirectories(temporaryDir);
+
+        List<CompletableFuture<String>> uploads = new ArrayList<>();
+        for (MultipartFile file : media) {
+            if (!file.isEmpty()) {
+                uploads.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return store(file, temporaryDir);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, uploadExecutor));
+            }
+        }
+
+        IOException failure = null;
+        for (CompletableFuture<String> upload : uploads) {
+            try {
+                keys.add(upload.join());
+            } catch (CompletionException e) {
+                if (failure == null) {
+                    failure = e.getCause() instanceof UncheckedIOException io ? io.getCause() : new IOException(e.getCause());
+                }
+            }
+        }
+
+        // Files stored before a failure are left unreferenced, the garbage collector reclaims them
+        if (failure != null) {
+            throw failure;
+        }
+
+        return keys;
+    }
+
+    /**
+     * Counts a reference to each stored file. The {@code media_object} rows stay locked until the
+     * transaction commits, and the garbage collector deletes a file only while holding that lock,
+     * so a file found here is safe. One the collector deleted since {@link #storeAll} is stored
+     * again from the uploads.
+     *
+     * @param uploads the files {@code keys} were stored from.
+     */
+    @Transactional
+    public void addReferences(List<String> keys, List<MultipartFile> uploads) {
+        for (String key : keys) {
+            Path file = resolve(key);
+            mediaObjectRepository.addReference(key, sizeOf(file, uploads));
+            // Checked again now that the row is locked
+            sizeOf(file, uploads);
+        }
+    }
+
+    private long sizeOf(Path file, List<MultipartFile> uploads) {
+        try {
+            try {
+                return Files.size(file);
+            } catch (NoSuchFileException e) {
+                storeAll(uploads);
+                return Files.size(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Transactional
+    public void releaseAll(List<String> keys) {
+        if (keys == null) {
+            return;
+        }
+
+        for (String key : keys) {
+            if (isContentAddressed(key)) {
+                mediaObjectRepository.removeReference(key);
+            } else {
+                releasedLegacyKeys.increment();
+            }
+        }
+    }
+
+    /**
+     * @return legacy keys released by deleted posts so far, which may have left their files orphaned.
+     */
+    public long getReleasedLegacyKeys() {
+        return releasedLegacyKeys.sum();
+    }
+
+    private void checkSizes(List<MultipartFile> media) throws MediaTooLargeException {
+        long maxFileSize = propertiesConfig.getMediaMaxFileSize().toBytes();
+        long maxRequestSize = propertiesConfig.getMediaMaxRequestSize().toBytes();
+
+        long totalSize = 0;
+        for (MultipartFile file : media) {
+            if (file.getSize() > maxFileSize) {
+                throw new MediaTooLargeException("Media file exceeds " + maxFileSize + " bytes.");
+            }
+            totalSize += file.getSize();
+        }
+
+        if (totalSize > maxRequestSize) {
+            throw new MediaTooLargeException("Media files exceed " + maxRequestSize + " bytes in total.");
+        }
+    }
+
+    /**
+     * Copies the upload into a temporary file chunk by chunk, hashing it on the way and
+     * without buffering it whole in the heap, then renames it to its content address.
+     * If that content is already stored the copy is simply dropped.
+     */
+    private String store(MultipartFile file, Path temporaryDir) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+
+        Path temporary = Files.createTempFile(temporaryDir, "upload-", ".tmp");
+        try {
+            try (ReadableByteChannel source = Channels.newChannel(new DigestInputStream(file.getInputStream(), digest));
+                 FileChannel destination = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                long position = 0;
+                long transferred;
+                while ((transferred = destination.transferFrom(source, position, TRANSFER_CHUNK_SIZE)) > 0) {
+                    position += transferred;
+                }
+            }
+
+            String key = HexFormat.of().formatHex(digest.digest()) + extensionOf(file);
+            Path target = resolve(key);
+            if (Files.exists(target)) {
+                // Fresh modification time keeps the garbage collector off it until the reference is committed
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                Files.delete(temporary);
+                return key;
+            }
+
+            Files.createDirectories(target.getParent());
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                // The same content was stored concurrently
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                Files.delete(temporary);
+            }
+            return key;
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+
+    private static String extensionOf(MultipartFile file) {
+        // Get the original filename to preserve the extension
+        String originalFilename = file.getOriginalFilename();
+
+        if (originalFilename != null) {
+            // Extract the file extension
+            int lastDotIndex = originalFilename.lastIndexOf('.');
+            if (lastDotIndex > 0) {
+                String extension = originalFilename.substring(lastDotIndex).toLowerCase(Locale.ROOT);
+                if (EXTENSION_PATTERN.matcher(extension).matches()) {
+                    return extension; // Include the dot
+                }
+            }
+        }
+
+        return "";
+    }
+}
@@ -0,0 +1,9 @@
+package com.ermnvldmr.w.service;
+
+import java.io.IOException;
+
+public class MediaTooLargeException extends IOException {
+    public MediaTooLargeException(String message) {
+        super(message);
+    }
+}
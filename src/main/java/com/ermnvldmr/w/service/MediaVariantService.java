@@ -0,0 +1,285 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.config.PropertiesConfig;
+import com.ermnvldmr.w.domain.MediaVariant;
+import com.ermnvldmr.w.repository.MediaVariantRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Generates downscaled variants of uploaded images in the background. Work is queued on a
+ * bounded executor: when the queue is full the image is skipped and served in full size.
+ */
+@Service
+public class MediaVariantService {
+    private static final Logger logger = LoggerFactory.getLogger(MediaVariantService.class);
+
+    private static final Set<String> IMAGE_EXTENSIONS = Set.of(".jpg", ".jpeg", ".png", ".gif", ".bmp");
+
+    // Bigger images are not decoded at all, a 40 megapixel ARGB raster alone takes 160 MB
+    private static final long MAX_SOURCE_PIXELS = 40_000_000;
+
+    private static final float JPEG_QUALITY = 0.82f;
+
+    private final PropertiesConfig propertiesConfig;
+    private final MediaService mediaService;
+    private final MediaVariantRepository mediaVariantRepository;
+
+    private final ThreadPoolExecutor variantExecutor;
+    private final LongAdder rejectedTasks = new LongAdder();
+    private final LongAdder generatedVariants = new LongAdder();
+
+    public MediaVariantService(PropertiesConfig propertiesConfig,
+                               MediaService mediaService,
+                               MediaVariantRepository mediaVariantRepository) {
+        this.propertiesConfig = propertiesConfig;
+        this.mediaService = mediaService;
+        this.mediaVariantRepository = mediaVariantRepository;
+
+        int threads = propertiesConfig.getMediaVariantThreads();
+        this.variantExecutor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(propertiesConfig.getMediaVariantQueueCapacity()),
+                Thread.ofPlatform().name("media-variant-", 0).daemon().factory(),
+                new ThreadPoolExecutor.AbortPolicy());
+
+        // Decode from memory instead of spilling image streams to temporary files
+        ImageIO.setUseCache(false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        variantExecutor.shutdownNow();
+    }
+
+    public long getRejectedTasks() {
+        return rejectedTasks.sum();
+    }
+
+    public long getGeneratedVariants() {
+        return generatedVariants.sum();
+    }
+
+    public int getQueuedTasks() {
+        return variantExecutor.getQueue().size();
+    }
+
+    public Path getVariantDir() {
+        return mediaService.getMediaDir().resolve("variants");
+    }
+
+    public Path resolve(String variantKey) {
+        return getVariantDir().resolve(variantKey.substring(0, 2)).resolve(variantKey.substring(2, 4)).resolve(variantKey);
+    }
+
+    /**
+     * @return the narrowest variant at least {@code width} pixels wide, or empty when the
+     * original file is the best match.
+     */
+    public Optional<MediaVariant> findVariant(String mediaKey, int width) {
+        if (!MediaService.isContentAddressed(mediaKey)) {
+            return Optional.empty();
+        }
+        return mediaVariantRepository.findFirstByMediaKeyAndWidthGreaterThanEqualOrderByWidthAsc(mediaKey, width);
+    }
+
+    /**
+     * Queues variant generation of the given media files, never blocking the caller.
+     */
+    public void submitAll(List<String> mediaKeys) {
+        if (mediaKeys == null) {
+            return;
+        }
+
+        for (String mediaKey : mediaKeys) {
+            if (!isImage(mediaKey)) {
+                continue;
+            }
+
+            try {
+                variantExecutor.execute(() -> generate(mediaKey));
+            } catch (RejectedExecutionException e) {
+                rejectedTasks.increment();
+                logger.warn("Variant queue is full, media {} is left without variants.", mediaKey);
+            }
+        }
+    }
+
+    private static boolean isImage(String mediaKey) {
+        if (!MediaService.isContentAddressed(mediaKey)) {
+            return false;
+        }
+
+        int lastDotIndex = mediaKey.lastIndexOf('.');
+        return lastDotIndex != -1 && IMAGE_EXTENSIONS.contains(mediaKey.substring(lastDotIndex));
+    }
+
+    private void generate(String mediaKey) {
+        try {
+            // Same content uploaded again: only widths that are still missing, for instance
+            // after an earlier run failed halfway, are generated
+            Set<Integer> existingWidths = new HashSet<>();
+            for (MediaVariant variant : mediaVariantRepository.findAllByMediaKey(mediaKey)) {
+                existingWidths.add(variant.getWidth());
+            }
+            List<Integer> missingWidths = propertiesConfig.getMediaVariantWidths().stream()
+                    .filter(width -> width > 0 && !existingWidths.contains(width))
+                    .toList();
+            if (missingWidths.isEmpty()) {
+                return;
+            }
+
+            BufferedImage source = read(mediaService.resolve(mediaKey));
+            if (source == null) {
+                return;
+            }
+
+            boolean alpha = source.getColorModel().hasAlpha();
+            String format = alpha ? "png" : "jpg";
+
+            for (int width : missingWidths) {
+                // Narrower variants only, for anything wider the original is adequate
+                if (width >= source.getWidth()) {
+                    continue;
+                }
+
+                try {
+                    int height = Math.max(1, (int) Math.round((double) source.getHeight() * width / source.getWidth()));
+                    BufferedImage scaled = scale(source, width, height, alpha);
+
+                    // Keyed by the whole source key, the same content under another extension
+                    // is another media object with variants of its own
+                    String variantKey = mediaKey + "_" + width + "." + format;
+                    long size = store(scaled, format, resolve(variantKey));
+                    mediaVariantRepository.insertIgnore(variantKey, mediaKey, width, height, size);
+                    generatedVariants.increment();
+                } catch (IOException | RuntimeException e) {
+                    logger.warn("Failed to generate the {} pixels wide variant of media {}.", width, mediaKey, e);
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed to generate variants of media {}.", mediaKey, e);
+        }
+    }
+
+    /**
+     * @return decoded image, or {@code null} when it is not decodable or too big to decode.
+     */
+    private static BufferedImage read(Path file) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(file.toFile())) {
+            if (input == null) {
+                return null;
+            }
+
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) {
+                return null;
+            }
+
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                // Dimensions come from the header, so oversized images are rejected before decoding
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_SOURCE_PIXELS) {
+                    return null;
+                }
+                return reader.read(0);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Halves the image with bilinear filtering until one more step would undershoot, which
+     * keeps quality close to bicubic at a fraction of its cost.
+     */
+    private static BufferedImage scale(BufferedImage source, int width, int height, boolean alpha) {
+        int type = alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+        BufferedImage current = source;
+        int currentWidth = source.getWidth();
+        int currentHeight = source.getHeight();
+
+        do {
+            currentWidth = Math.max(width, currentWidth / 2);
+            currentHeight = Math.max(height, currentHeight / 2);
+
+            BufferedImage next = new BufferedImage(currentWidth, currentHeight, type);
+            Graphics2D graphics = next.createGraphics();
+            try {
+                graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                graphics.drawImage(current, 0, 0, currentWidth, currentHeight, null);
+            } finally {
+                graphics.dispose();
+            }
+            current = next;
+        } while (currentWidth != width || currentHeight != height);
+
+        return current;
+    }
+
+    /**
+     * Encodes the image into a temporary file and renames it into place.
+     *
+     * @return size of the stored variant.
+     */
+    private long store(BufferedImage image, String format, Path target) throws IOException {
+        Path temporaryDir = mediaService.getTemporaryDir();
+        Files.createDirectories(temporaryDir);
+        Files.createDirectories(target.getParent());
+        Path temporary = Files.createTempFile(temporaryDir, "variant-", ".tmp");
+        try {
+            ImageWriter writer = ImageIO.getImageWritersByFormatName(format).next();
+            try (ImageOutputStream output = ImageIO.createImageOutputStream(temporary.toFile())) {
+                writer.setOutput(output);
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                if (param.canWriteCompressed() && "jpg".equals(format)) {
+                    param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+                    param.setCompressionQuality(JPEG_QUALITY);
+                }
+                writer.write(null, new IIOImage(image, null, null), param);
+            } finally {
+                writer.dispose();
+            }
+
+            long size = Files.size(temporary);
+            try {
+                Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+            } catch (FileAlreadyExistsException e) {
+                Files.delete(temporary);
+            }
+            return size;
+        } catch (IOException e) {
+            Files.deleteIfExists(temporary);
+            throw e;
+        }
+    }
+}
@@ -1,52 +1,90 @@
 package com.ermnvldmr.w.service;
 
-import com.ermnvldmr.w.config.PropertiesConfig;
+import com.ermnvldmr.w.dto.CursorPage;
+import com.ermnvldmr.w.dto.PostDto;
+import com.ermnvldmr.w.utils.Cursor;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.data.domain.Limit;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import com.ermnvldmr.w.domain.Post;
 import com.ermnvldmr.w.domain.User;
 import com.ermnvldmr.w.form.WritePostForm;
 import com.ermnvldmr.w.repository.PostRepository;
-import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Timed("w.service")
 public class PostService {
-    private final PropertiesConfig propertiesConfig;
-    private final PostRepository postRepository;
-
-    private final Map<Long, Map<String, Long>> viewTimestamps = new ConcurrentHashMap<>();
+    public static final int MAX_FEED_PAGE_SIZE = 100;
 
-    public PostService(PropertiesConfig propertiesConfig,
-                       PostRepository postRepository) {
-        this.propertiesConfig = propertiesConfig;
+    private final MediaService mediaService;
+    private final MediaVariantService mediaVariantService;
+    private final HotFeedService hotFeedService;
+    private final PostRepository postRepository;
+    private final ViewCounter viewCounter;
+    private final ViewDedupStore viewDedupStore;
+    private final TransactionTemplate transactionTemplate;
+
+    public PostService(MediaService mediaService,
+                       MediaVariantService mediaVariantService,
+                       HotFeedService hotFeedService,
+                       PostRepository postRepository,
+                       ViewCounter viewCounter,
+                       ViewDedupStore viewDedupStore,
+                       TransactionTemplate transactionTemplate) {
+        this.mediaService = mediaService;
+        this.mediaVariantService = mediaVariantService;
+        this.hotFeedService = hotFeedService;
         this.postRepository = postRepository;
+        this.viewCounter = viewCounter;
+        this.viewDedupStore = viewDedupStore;
+        this.transactionTemplate = transactionTemplate;
     }
 
     public Post findById(long id) {
         return postRepository.findById(id).orElse(null);
     }
 
-    public List<Post> findAll() {
-        return postRepository.findAllByOrderByCreationTimeDesc();
+    public CursorPage<PostDto> findFeedPage(Cursor after, int limit) {
+        int pageSize = Math.clamp(limit, 1, MAX_FEED_PAGE_SIZE);
+        // One extra row tells whether there is a next page
+        Limit fetchLimit = Limit.of(pageSize + 1);
+
+        List<PostDto> posts = after == null
+                ? postRepository.findFeedPage(fetchLimit)
+                : postRepository.findFeedPageAfter(after.getTime(), after.getId(), fetchLimit);
+
+        return CursorPage.of(posts, pageSize, post -> Cursor.ofTime(post.getCreationTime(), post.getId()));
+    }
+
+    public List<PostDto> findHotPage(int limit) {
+        return hotFeedService.findTop(Math.clamp(limit, 1, MAX_FEED_PAGE_SIZE));
     }
 
     public Post writePost(WritePostForm form, User author) throws IOException {
+        // Uploads are stored before the transaction, which then only holds a connection for the inserts
+        List<String> media = mediaService.storeAll(form.getMedia());
+
         Post post = new Post();
         post.setTitle(form.getTitle());
         post.setText(form.getText());
-        post.setMedia(saveMediaAndGetKeys(form.getMedia(), post.getId() + "_"));
+        post.setMedia(media);
         post.setUser(author);
+        post.setHotScore(HotFeedService.score(0, 0, 0, Instant.now()));
 
-        this.postRepository.save(post);
+        transactionTemplate.executeWithoutResult(status -> {
+            mediaService.addReferences(media, form.getMedia());
+            this.postRepository.save(post);
+        });
+        mediaVariantService.submitAll(post.getMedia());
+        hotFeedService.onPostCreated(post.getId(), post.getCreationTime());
 
         return post;
     }
@@ -54,80 +92,42 @@ public class PostService {
     public Post getAndIncrementViewCount(Long postId, String viewerIdentifier) {
         Post post = postRepository.findById(postId).orElse(null);
 
-        if (post != null && shouldIncrementView(postId, viewerIdentifier)) {
-            post.incrementViewCount();
-            postRepository.save(post);
+        if (post != null) {
+            if (viewDedupStore.tryRecordView(postId, viewerIdentifier)) {
+                viewCounter.increment(postId);
+                hotFeedService.onView(postId);
+            }
+            // Include views that are not flushed to the database yet
+            post.setViewCount(post.getViewCount() + viewCounter.getPendingViews(postId));
         }
 
         return post;
     }
 
-    private boolean shouldIncrementView(long postId, String viewerIdentifier) {
-        long currentTime = System.currentTimeMillis();
-        long viewLimit = TimeUnit.MINUTES.toMillis(10);
-
-        viewTimestamps.putIfAbsent(postId, new ConcurrentHashMap<>());
-        Map<String, Long> postViews = viewTimestamps.get(postId);
-
-        Long lastViewTime = postViews.get(viewerIdentifier);
-
-        if (lastViewTime == null || currentTime - lastViewTime > viewLimit) {
-            postViews.put(viewerIdentifier, currentTime);
-            return true;
-        }
-
-        return false;
+    @Transactional
+    public void deletePostById(long id) {
+        postRepository.findById(id).ifPresent(post -> {
+            mediaService.releaseAll(post.getMedia());
+            postRepository.delete(post);
+            hotFeedService.onPostDeleted(id);
+        });
     }
 
-    private List<String> saveMediaAndGetKeys(List<MultipartFile> media, String keyPrefix) throws IOException {
-        List<String> keys = new ArrayList<>();
-
-        if (media == null || media.isEmpty()) {
-            return keys;
-        }
-
-        // Get the directory path from config properties
-        Path uploadDir = Paths.get(propertiesConfig.getMediaDir());
-
-        // Ensure the directory exists
-        if (!Files.exists(uploadDir)) {
-            Files.createDirectories(uploadDir);
-        }
-
-        for (int i = 0; i < media.size(); ++i) {
-            var file = media.get(i);
-
-            if (!file.isEmpty()) {
-                // Get the original filename to preserve the extension
-                String originalFilename = file.getOriginalFilename();
-                String extension = ""; // Default to an empty string
-
-                if (originalFilename != null) {
-                    // Extract the file extension
-                    int lastDotIndex = originalFilename.lastIndexOf('.');
-                    if (lastDotIndex > 0 && lastDotIndex < originalFilename.length() - 1) {
-                        extension = originalFilename.substring(lastDotIndex); // Include the dot
-                    }
-                }
-
-                // Construct the full file name, preserving the file extension
-                String key = keyPrefix + i + extension;
-                Path path = uploadDir.resolve(key); // Combine directory and key
-
-                // Write the file
-                Files.write(path, file.getBytes());
-                keys.add(key);
-            }
-        }
-
-        return keys;
+    public boolean existsByUserId(long userId) {
+        return postRepository.existsByUserId(userId);
     }
 
-    public void deletePostById(long id) {
-        postRepository.deleteById(id);
+    @Transactional(readOnly = true)
+    public void forEachByUserId(long userId, Consumer<PostDto> action) {
+        try (Stream<PostDto> posts = postRepository.streamAllByUserId(userId)) {
+            posts.forEach(action);
+        }
     }
 
-    public List<Post> findAllByUserId(Long userId) {
-        return postRepository.findAllByUserId(userId);
+    @Transactional(readOnly = true)
+    public void forEachMedia(Consumer<List<String>> action) {
+        try (Stream<List<String>> media = postRepository.streamAllMedia()) {
+            media.forEach(action);
+        }
     }
 }
@@ -7,14 +7,27 @@ import com.auth0.jwt.exceptions.JWTCreationException;
 import com.auth0.jwt.exceptions.JWTVerificationException;
 import com.auth0.jwt.interfaces.DecodedJWT;
 import com.ermnvldmr.w.config.PropertiesConfig;
+import com.ermnvldmr.w.dto.UserDto;
+import com.ermnvldmr.w.utils.ExpiringCache;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import com.ermnvldmr.w.domain.User;
 import com.ermnvldmr.w.form.UserCredentialsRegister;
 import com.ermnvldmr.w.repository.UserRepository;
 
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
+@Timed("w.service")
 public class UserService {
     private final PropertiesConfig propertiesConfig;
 
@@ -23,14 +36,27 @@ public class UserService {
     private final Algorithm algorithm;
     private final JWTVerifier verifier;
 
+    // Token hash to a detached copy of its verified user
+    private final ExpiringCache<String, User> jwtCache;
+
+    private final Timer validJwtVerifications;
+    private final Timer invalidJwtVerifications;
+
     public UserService(
             PropertiesConfig propertiesConfig,
-            UserRepository userRepository) {
+            UserRepository userRepository,
+            MeterRegistry meterRegistry) {
         this.propertiesConfig = propertiesConfig;
         this.userRepository = userRepository;
 
         this.algorithm = Algorithm.HMAC256(this.propertiesConfig.getJwtSecret());
         this.verifier = JWT.require(algorithm).build();
+
+        this.jwtCache = new ExpiringCache<>(this.propertiesConfig.getJwtCacheTtl(),
+                this.propertiesConfig.getJwtCacheMaxEntries());
+
+        this.validJwtVerifications = Timer.builder("w.jwt.verify").tag("result", "valid").register(meterRegistry);
+        this.invalidJwtVerifications = Timer.builder("w.jwt.verify").tag("result", "invalid").register(meterRegistry);
     }
 
     public User findByLogin(String login) {
@@ -49,16 +75,43 @@ public class UserService {
     }
 
     public User findByJwt(String jwt) {
+        if (jwt == null) {
+            return null;
+        }
+
+        String tokenHash = hashToken(jwt);
+        User cachedUser = jwtCache.get(tokenHash);
+        if (cachedUser != null) {
+            return cachedUser;
+        }
+
+        DecodedJWT decodedJwt;
+        long verificationStart = System.nanoTime();
         try {
-            DecodedJWT decodedJwt = verifier.verify(jwt);
-            return this.findById(decodedJwt.getClaim("userId").asLong());
+            decodedJwt = verifier.verify(jwt);
+            validJwtVerifications.record(System.nanoTime() - verificationStart, TimeUnit.NANOSECONDS);
         } catch (JWTVerificationException exception){
+            invalidJwtVerifications.record(System.nanoTime() - verificationStart, TimeUnit.NANOSECONDS);
             return null;
         }
+
+        User user = this.findById(decodedJwt.getClaim("userId").asLong());
+
+        if (user != null) {
+            jwtCache.put(tokenHash, snapshotOf(user));
+        }
+        return user;
+    }
+
+    public ExpiringCache<String, User> getJwtCache() {
+        return jwtCache;
     }
 
-    public List<User> findAll() {
-        return userRepository.findAllByOrderByIdDesc();
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<UserDto> action) {
+        try (Stream<UserDto> users = userRepository.streamAllByOrderByIdDesc()) {
+            users.forEach(action);
+        }
     }
 
     public String createUserJwt(User user) {
@@ -86,9 +139,30 @@ public class UserService {
 
     public void deleteUserById(long id) {
         userRepository.deleteById(id);
+        jwtCache.invalidateIf(cachedUser -> cachedUser.getId() == id);
     }
 
     public void saveUser(User user) {
         userRepository.save(user);
+        jwtCache.invalidateIf(cachedUser -> cachedUser.getId() == user.getId());
+    }
+
+    private static String hashToken(String jwt) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(jwt.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+    }
+
+    private static User snapshotOf(User user) {
+        User snapshot = new User();
+        snapshot.setId(user.getId());
+        snapshot.setName(user.getName());
+        snapshot.setLogin(user.getLogin());
+        snapshot.setAdmin(user.isAdmin());
+        snapshot.setCreationTime(user.getCreationTime());
+        return snapshot;
     }
 }
@@ -0,0 +1,123 @@
+package com.ermnvldmr.w.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind view counter: views are accumulated in memory and added to
+ * {@code post.view_count} in batches instead of rewriting the post row per view.
+ */
+@Component
+public class ViewCounter {
+    private static final Logger logger = LoggerFactory.getLogger(ViewCounter.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Posts not viewed for this many flushes are dropped from the map
+    private static final int RETIRE_AFTER_IDLE_FLUSHES = 3;
+
+    private final Map<Long, PendingViews> pendingViews = new ConcurrentHashMap<>();
+
+    // Not a monitor, a virtual thread flushing under one would pin its carrier during the batch
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    // Guarded by flushLock
+    private final Map<Long, Integer> idleFlushes = new HashMap<>();
+
+    public ViewCounter(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void increment(long postId) {
+        add(postId, 1);
+    }
+
+    public long getPendingViews(long postId) {
+        PendingViews views = pendingViews.get(postId);
+        return views == null ? 0 : views.count.sum();
+    }
+
+    public long getPendingViews() {
+        return pendingViews.values().stream().mapToLong(views -> views.count.sum()).sum();
+    }
+
+    public int getPendingPosts() {
+        return pendingViews.size();
+    }
+
+    @Scheduled(fixedDelayString = "${config.viewFlushInterval}")
+    @PreDestroy
+    public void flush() {
+        flushLock.lock();
+        try {
+            List<Object[]> batch = new ArrayList<>();
+
+            for (Map.Entry<Long, PendingViews> entry : pendingViews.entrySet()) {
+                long postId = entry.getKey();
+                PendingViews pending = entry.getValue();
+                long views = pending.count.sumThenReset();
+                if (views == 0 && idleFlushes.merge(postId, 1, Integer::sum) >= RETIRE_AFTER_IDLE_FLUSHES) {
+                    idleFlushes.remove(postId);
+                    // Retired before it is drained, so a view either lands in the drain or sees the flag
+                    pending.retired = true;
+                    pendingViews.remove(postId, pending);
+                    views = pending.count.sumThenReset();
+                } else if (views != 0) {
+                    idleFlushes.remove(postId);
+                }
+
+                if (views != 0) {
+                    batch.add(new Object[]{views, postId});
+                }
+            }
+
+            if (batch.isEmpty()) {
+                return;
+            }
+
+            try {
+                jdbcTemplate.batchUpdate("UPDATE post SET view_count=view_count+? WHERE id=?", batch);
+                logger.debug("Flushed views of {} posts", batch.size());
+            } catch (DataAccessException e) {
+                // Keep the views so that the next flush retries them
+                for (Object[] args : batch) {
+                    add((Long) args[1], (Long) args[0]);
+                }
+                logger.warn("Failed to flush views of {} posts", batch.size(), e);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Lock free once the post has an entry. Views added to an entry a flush retired meanwhile
+    // are taken back, unless the flush drained them already, and added to the current one
+    private void add(long postId, long views) {
+        while (views != 0) {
+            PendingViews pending = pendingViews.computeIfAbsent(postId, id -> new PendingViews());
+            pending.count.add(views);
+            if (!pending.retired) {
+                return;
+            }
+            views = pending.count.sumThenReset();
+        }
+    }
+
+    private static final class PendingViews {
+        private final LongAdder count = new LongAdder();
+        private volatile boolean retired;
+    }
+}
@@ -0,0 +1,18 @@
+package com.ermnvldmr.w.service;
+
+/**
+ * Decides whether a post view counts, i.e. whether the viewer has not viewed
+ * the post within the dedup window.
+ */
+public interface ViewDedupStore {
+    /**
+     * @return {@code true} if the viewer has not been recorded for the post within
+     * the window, in which case the view is recorded now.
+     */
+    boolean tryRecordView(long postId, String viewerIdentifier);
+
+    /**
+     * @return number of (post, viewer) pairs currently remembered.
+     */
+    long getSize();
+}
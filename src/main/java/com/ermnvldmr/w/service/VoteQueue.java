@@ -0,0 +1,599 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.config.PropertiesConfig;
+import com.ermnvldmr.w.dto.VoteResult;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Write-behind vote ingestion, enabled with {@code config.voteWriteBehind}. Toggles are
+ * applied to an in-memory map of pending votes, one entry per (user, target) holding the
+ * stored vote and the latest one, so any number of toggles between flushes collapse into
+ * at most one row change. Flushes lock the stored votes of a batch, write the changes to
+ * them in JDBC batches and derive the counter deltas from the votes actually found, so a
+ * vote changed behind the queue's back is never counted twice. A batch that fails is retried
+ * vote by vote, votes that still break a constraint, like one of a user deleted in the
+ * meantime, are dropped instead of blocking every later flush.
+ * <p>
+ * Every toggle is also appended to a local log as the resulting vote. The log is replayed
+ * on startup, and since it records states rather than toggles, replaying entries that were
+ * already flushed changes nothing. Data survives a crash of the process, not of the host.
+ */
+@Component
+@ConditionalOnProperty(prefix = "config", name = "voteWriteBehind", havingValue = "true")
+public class VoteQueue {
+    private static final Logger logger = LoggerFactory.getLogger(VoteQueue.class);
+
+    // Votes per locking read, each adds two parameters
+    private static final int READ_CHUNK_SIZE = 500;
+
+    public enum Target {
+        POST('P', "post", "post_id",
+                "UPDATE post SET upvotes=upvotes+?, downvotes=downvotes+? WHERE id=?"),
+        DISCUSSION('D', "discussion", "discussion_id",
+                "UPDATE discussion SET upvotes=upvotes+?, downvotes=downvotes+?, score=score+? WHERE id=?");
+
+        private final char code;
+        private final String table;
+        private final String column;
+        private final String counterSql;
+
+        Target(char code, String table, String column, String counterSql) {
+            this.code = code;
+            this.table = table;
+            this.column = column;
+            this.counterSql = counterSql;
+        }
+
+        private Object[] counterArgs(long targetId, long upvotes, long downvotes) {
+            return this == POST
+                    ? new Object[]{upvotes, downvotes, targetId}
+                    : new Object[]{upvotes, downvotes, upvotes - downvotes, targetId};
+        }
+
+        private static Target of(char code) {
+            for (Target target : values()) {
+                if (target.code == code) {
+                    return target;
+                }
+            }
+            throw new IllegalArgumentException("Unknown vote target " + code);
+        }
+    }
+
+    /**
+     * @param stored vote in the database when the entry was created.
+     * @param state vote after the queued toggles; for both, {@code null} means no vote.
+     */
+    public record PendingVote(Boolean stored, Boolean state) {
+    }
+
+    private record VoteKey(Target target, long userId, long targetId) {
+    }
+
+    private final PropertiesConfig propertiesConfig;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private final Path logFile;
+    private final Path flushingLogFile;
+
+    // Guards pending writes, the log and flush hand-over. Not monitors, which would pin virtual threads
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Map<VoteKey, PendingVote> pending = new ConcurrentHashMap<>();
+    private volatile Map<VoteKey, PendingVote> inflight = Map.of();
+    private volatile long flushes = 0;
+    private FileChannel log;
+
+    private final LongAdder queuedVotes = new LongAdder();
+    private final LongAdder coalescedVotes = new LongAdder();
+    private final LongAdder rejectedVotes = new LongAdder();
+    private final LongAdder flushedVotes = new LongAdder();
+    private final LongAdder droppedVotes = new LongAdder();
+
+    public VoteQueue(PropertiesConfig propertiesConfig,
+                     JdbcTemplate jdbcTemplate,
+                     TransactionTemplate transactionTemplate) {
+        this.propertiesConfig = propertiesConfig;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.logFile = Paths.get(propertiesConfig.getVoteLogFile()).toAbsolutePath();
+        this.flushingLogFile = logFile.resolveSibling(logFile.getFileName() + ".flushing");
+    }
+
+    public int getPendingVotes() {
+        return pending.size();
+    }
+
+    public long getQueuedVotes() {
+        return queuedVotes.sum();
+    }
+
+    public long getCoalescedVotes() {
+        return coalescedVotes.sum();
+    }
+
+    public long getRejectedVotes() {
+        return rejectedVotes.sum();
+    }
+
+    public long getFlushedVotes() {
+        return flushedVotes.sum();
+    }
+
+    /**
+     * @return votes given up on, because their user or target was deleted or they kept failing.
+     */
+    public long getDroppedVotes() {
+        return droppedVotes.sum();
+    }
+
+    /**
+     * Queues a vote toggle.
+     *
+     * @param storedVote reads the vote from the database, called only when nothing is queued for it.
+     * @return the resulting vote, or {@code null} when the queue is full and the caller should
+     * write it synchronously.
+     */
+    public VoteResult vote(Target target, long userId, long targetId, boolean upvote, Supplier<Boolean> storedVote) {
+        VoteKey key = new VoteKey(target, userId, targetId);
+
+        while (true) {
+            long seenFlushes = flushes;
+            boolean queued = pending.containsKey(key) || inflight.containsKey(key);
+            Boolean stored = queued ? null : storedVote.get();
+
+            lock.lock();
+            try {
+                PendingVote current = pending.get(key);
+                PendingVote flushing = inflight.get(key);
+
+                Boolean base;
+                if (current != null) {
+                    base = current.stored();
+                } else if (flushing != null) {
+                    // Stored as soon as the flush commits
+                    base = flushing.state();
+                } else if (!queued && seenFlushes == flushes) {
+                    base = stored;
+                } else {
+                    // Flushed in between, the read may predate it
+                    continue;
+                }
+
+                if (current == null && flushing == null && pending.size() >= propertiesConfig.getVoteQueueCapacity()) {
+                    rejectedVotes.increment();
+                    return null;
+                }
+
+                Boolean state = current != null ? current.state() : base;
+                Boolean next = Objects.equals(state, upvote) ? null : upvote;
+                append(key, next);
+                pending.put(key, new PendingVote(base, next));
+
+                queuedVotes.increment();
+                if (current != null) {
+                    coalescedVotes.increment();
+                }
+                return new VoteResult(next, scoreOf(next) - scoreOf(state));
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * @return the queued vote, or {@code null} when nothing is queued and the database is up to date.
+     */
+    public PendingVote findPending(Target target, long userId, long targetId) {
+        VoteKey key = new VoteKey(target, userId, targetId);
+        PendingVote vote = pending.get(key);
+        return vote != null ? vote : inflight.get(key);
+    }
+
+    @PreDestroy
+    public void shutdown() throws IOException {
+        flush();
+        lock.lock();
+        try {
+            log.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${config.voteFlushInterval}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<VoteKey, PendingVote> batch;
+            lock.lock();
+            try {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                try {
+                    rotateLog();
+                } catch (IOException e) {
+                    logger.warn("Failed to rotate {}, votes stay queued", logFile, e);
+                    return;
+                }
+                batch = new HashMap<>(pending);
+                pending.clear();
+                inflight = batch;
+            } finally {
+                lock.unlock();
+            }
+
+            Map<VoteKey, PendingVote> failed = Map.of();
+            try {
+                int written = transactionTemplate.execute(status -> write(batch));
+                flushedVotes.add(written);
+                logger.debug("Flushed {} queued votes", written);
+            } catch (RuntimeException e) {
+                logger.warn("Failed to flush {} queued votes, retrying them one by one", batch.size(), e);
+                failed = writeEach(batch);
+            }
+
+            lock.lock();
+            try {
+                // Requeue, keeping toggles made during the flush on top
+                for (Map.Entry<VoteKey, PendingVote> entry : failed.entrySet()) {
+                    PendingVote restored = pending.merge(entry.getKey(), entry.getValue(),
+                            (newer, older) -> new PendingVote(older.stored(), newer.state()));
+                    append(entry.getKey(), restored.state());
+                }
+                inflight = Map.of();
+                ++flushes;
+            } finally {
+                lock.unlock();
+            }
+
+            try {
+                Files.deleteIfExists(flushingLogFile);
+            } catch (IOException e) {
+                logger.warn("Failed to delete {}", flushingLogFile, e);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the votes of a failed batch in a transaction each. A vote that breaks a constraint
+     * twice is dropped, the second attempt reads the stored vote again after a concurrent insert.
+     * After any other failure the database is assumed to be unavailable.
+     *
+     * @return votes to requeue.
+     */
+    private Map<VoteKey, PendingVote> writeEach(Map<VoteKey, PendingVote> batch) {
+        Map<VoteKey, PendingVote> failed = new HashMap<>();
+        RuntimeException unavailable = null;
+        for (Map.Entry<VoteKey, PendingVote> entry : batch.entrySet()) {
+            if (unavailable != null) {
+                failed.put(entry.getKey(), entry.getValue());
+                continue;
+            }
+
+            Map<VoteKey, PendingVote> single = Map.of(entry.getKey(), entry.getValue());
+            for (int attempt = 1; ; ++attempt) {
+                try {
+                    flushedVotes.add(transactionTemplate.execute(status -> write(single)));
+                    break;
+                } catch (DataIntegrityViolationException e) {
+                    if (attempt < 2) {
+                        continue;
+                    }
+                    droppedVotes.increment();
+                    logger.warn("Dropping queued vote {} of user {} on {} {}",
+                            entry.getValue().state(), entry.getKey().userId(),
+                            entry.getKey().target().table, entry.getKey().targetId(), e);
+                    break;
+                } catch (RuntimeException e) {
+                    unavailable = e;
+                    failed.put(entry.getKey(), entry.getValue());
+                    break;
+                }
+            }
+        }
+
+        if (unavailable != null) {
+            logger.warn("Failed to flush queued votes, requeueing {}", failed.size(), unavailable);
+        }
+        return failed;
+    }
+
+    /**
+     * Locks the stored votes of the batch and brings them to the queued state. Counter deltas
+     * are the difference between the queued and the stored votes, not the ones the queue saw
+     * when the toggles came in.
+     *
+     * @return number of votes changed in the database.
+     */
+    private int write(Map<VoteKey, PendingVote> batch) {
+        Map<Target, List<VoteKey>> keys = new EnumMap<>(Target.class);
+        for (VoteKey key : batch.keySet()) {
+            keys.computeIfAbsent(key.target(), target -> new ArrayList<>()).add(key);
+        }
+
+        int changed = 0;
+        int dropped = 0;
+        for (Map.Entry<Target, List<VoteKey>> group : keys.entrySet()) {
+            Target target = group.getKey();
+            Map<VoteKey, Boolean> stored = readStored(target, group.getValue());
+
+            List<Object[]> deletes = new ArrayList<>();
+            List<Object[]> updates = new ArrayList<>();
+            List<VoteKey> inserts = new ArrayList<>();
+            for (VoteKey key : group.getValue()) {
+                Boolean state = batch.get(key).state();
+                Boolean current = stored.get(key);
+                if (Objects.equals(current, state)) {
+                    continue;
+                }
+
+                if (state == null) {
+                    deletes.add(new Object[]{key.userId(), key.targetId()});
+                } else if (current == null) {
+                    inserts.add(key);
+                } else {
+                    updates.add(new Object[]{state, key.userId(), key.targetId()});
+                }
+            }
+
+            // Votes of users or on targets deleted in the meantime are dropped
+            Set<Long> users = existingIds("user", inserts.stream().map(VoteKey::userId).toList());
+            Set<Long> targets = existingIds(target.table, inserts.stream().map(VoteKey::targetId).toList());
+            List<Object[]> insertArgs = new ArrayList<>();
+            for (VoteKey key : inserts) {
+                if (users.contains(key.userId()) && targets.contains(key.targetId())) {
+                    insertArgs.add(new Object[]{batch.get(key).state(), key.userId(), key.targetId()});
+                } else {
+                    // Counted as if stored, so that no counter changes for it
+                    stored.put(key, batch.get(key).state());
+                    ++dropped;
+                }
+            }
+
+            String column = target.column;
+            batchUpdate("DELETE FROM vote WHERE user_id=? AND " + column + "=?", deletes);
+            batchUpdate("UPDATE vote SET upvote=? WHERE user_id=? AND " + column + "=?", updates);
+            // No upsert: a vote inserted since the read is a conflict and fails the batch
+            batchUpdate("INSERT INTO vote (id, upvote, user_id, " + column + ") " +
+                    "VALUES (NEXT VALUE FOR vote_seq, ?, ?, ?)", insertArgs);
+
+            // One counter update per target, however many users voted on it
+            Map<Long, long[]> counters = new HashMap<>();
+            for (VoteKey key : group.getValue()) {
+                Boolean state = batch.get(key).state();
+                Boolean current = stored.get(key);
+                if (Objects.equals(current, state)) {
+                    continue;
+                }
+
+                long[] delta = counters.computeIfAbsent(key.targetId(), id -> new long[2]);
+                delta[0] += isUpvote(state) - isUpvote(current);
+                delta[1] += isDownvote(state) - isDownvote(current);
+                ++changed;
+            }
+
+            List<Object[]> counterArgs = new ArrayList<>();
+            counters.forEach((targetId, delta) -> {
+                if (delta[0] != 0 || delta[1] != 0) {
+                    counterArgs.add(target.counterArgs(targetId, delta[0], delta[1]));
+                }
+            });
+            batchUpdate(target.counterSql, counterArgs);
+        }
+
+        if (dropped > 0) {
+            droppedVotes.add(dropped);
+            logger.info("Dropped {} queued votes of deleted users or on deleted targets", dropped);
+        }
+        return changed;
+    }
+
+    /**
+     * @return stored votes of the keys, locked until the transaction ends. Keys without a vote are absent.
+     */
+    private Map<VoteKey, Boolean> readStored(Target target, List<VoteKey> keys) {
+        Map<VoteKey, Boolean> stored = new HashMap<>();
+        for (int from = 0; from < keys.size(); from += READ_CHUNK_SIZE) {
+            List<VoteKey> chunk = keys.subList(from, Math.min(keys.size(), from + READ_CHUNK_SIZE));
+            Object[] args = new Object[chunk.size() * 2];
+            for (int i = 0; i < chunk.size(); ++i) {
+                args[2 * i] = chunk.get(i).userId();
+                args[2 * i + 1] = chunk.get(i).targetId();
+            }
+
+            String tuples = String.join(",", Collections.nCopies(chunk.size(), "(?,?)"));
+            jdbcTemplate.query("SELECT user_id, " + target.column + ", upvote FROM vote " +
+                            "WHERE (user_id, " + target.column + ") IN (" + tuples + ") FOR UPDATE",
+                    (RowCallbackHandler) result -> stored.put(
+                            new VoteKey(target, result.getLong(1), result.getLong(2)), result.getBoolean(3)),
+                    args);
+        }
+        return stored;
+    }
+
+    /**
+     * @return ids of the rows that exist, locked until the transaction ends, so that they are
+     * not deleted before the votes referencing them are inserted.
+     */
+    private Set<Long> existingIds(String table, List<Long> ids) {
+        Set<Long> existing = new HashSet<>();
+        List<Long> distinct = ids.stream().distinct().toList();
+        for (int from = 0; from < distinct.size(); from += READ_CHUNK_SIZE) {
+            List<Long> chunk = distinct.subList(from, Math.min(distinct.size(), from + READ_CHUNK_SIZE));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            existing.addAll(jdbcTemplate.queryForList(
+                    "SELECT id FROM " + table + " WHERE id IN (" + placeholders + ") FOR UPDATE",
+                    Long.class, chunk.toArray()));
+        }
+        return existing;
+    }
+
+    private int[] batchUpdate(String sql, List<Object[]> args) {
+        if (args.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(sql, args);
+    }
+
+    private static long isUpvote(Boolean vote) {
+        return Boolean.TRUE.equals(vote) ? 1 : 0;
+    }
+
+    private static long isDownvote(Boolean vote) {
+        return Boolean.FALSE.equals(vote) ? 1 : 0;
+    }
+
+    private static long scoreOf(Boolean vote) {
+        return isUpvote(vote) - isDownvote(vote);
+    }
+
+    /**
+     * Restores the votes logged before the last shutdown or crash, and compacts the log to them.
+     */
+    @PostConstruct
+    public void replay() throws IOException {
+        Map<VoteKey, Boolean> logged = new LinkedHashMap<>();
+        readLog(flushingLogFile, logged);
+        readLog(logFile, logged);
+
+        lock.lock();
+        try {
+            for (Map.Entry<VoteKey, Boolean> entry : logged.entrySet()) {
+                VoteKey key = entry.getKey();
+                Boolean stored = jdbcTemplate.query(
+                        "SELECT upvote FROM vote WHERE user_id=? AND " + key.target().column + "=?",
+                        result -> result.next() ? result.getBoolean(1) : null,
+                        key.userId(), key.targetId());
+                pending.put(key, new PendingVote(stored, entry.getValue()));
+            }
+
+            Path compacted = logFile.resolveSibling(logFile.getFileName() + ".compacting");
+            try (FileChannel channel = FileChannel.open(compacted, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (Map.Entry<VoteKey, PendingVote> entry : pending.entrySet()) {
+                    write(channel, entry.getKey(), entry.getValue().state());
+                }
+                channel.force(false);
+            }
+            Files.move(compacted, logFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(flushingLogFile);
+
+            log = FileChannel.open(logFile, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } finally {
+            lock.unlock();
+        }
+
+        if (!logged.isEmpty()) {
+            logger.info("Replayed {} queued votes from {}", logged.size(), logFile);
+        }
+    }
+
+    private static void readLog(Path file, Map<VoteKey, Boolean> logged) throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split(",");
+                if (fields.length != 4 || fields[0].length() != 1) {
+                    // Torn last line of a crash
+                    continue;
+                }
+                try {
+                    VoteKey key = new VoteKey(Target.of(fields[0].charAt(0)),
+                            Long.parseLong(fields[1]), Long.parseLong(fields[2]));
+                    logged.remove(key);
+                    logged.put(key, switch (fields[3]) {
+                        case "U" -> Boolean.TRUE;
+                        case "D" -> Boolean.FALSE;
+                        default -> null;
+                    });
+                } catch (IllegalArgumentException e) {
+                    logger.warn("Skipping malformed vote log line {}", line);
+                }
+            }
+        }
+    }
+
+    /**
+     * Starts a new log for toggles made during the flush, the old one is kept until the
+     * flush is done. Called under the lock.
+     */
+    private void rotateLog() throws IOException {
+        log.force(false);
+        // The open channel follows the renamed file
+        Files.move(logFile, flushingLogFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+        FileChannel next;
+        try {
+            next = FileChannel.open(logFile, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            Files.move(flushingLogFile, logFile, StandardCopyOption.ATOMIC_MOVE);
+            throw e;
+        }
+
+        log.close();
+        log = next;
+    }
+
+    // Called under the lock
+    private void append(VoteKey key, Boolean state) {
+        try {
+            write(log, key, state);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to append to " + logFile, e);
+        }
+    }
+
+    private static void write(FileChannel channel, VoteKey key, Boolean state) throws IOException {
+        String line = key.target().code + "," + key.userId() + "," + key.targetId() + ","
+                + (state == null ? "N" : state ? "U" : "D") + "\n";
+        ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.US_ASCII));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+}
@@ -4,64 +4,224 @@ import com.ermnvldmr.w.domain.Discussion;
 import com.ermnvldmr.w.domain.Post;
 import com.ermnvldmr.w.domain.User;
 import com.ermnvldmr.w.domain.Vote;
+import com.ermnvldmr.w.dto.VoteBatch;
+import com.ermnvldmr.w.dto.VoteResult;
+import com.ermnvldmr.w.dto.VoteState;
+import com.ermnvldmr.w.repository.DiscussionRepository;
+import com.ermnvldmr.w.repository.PostRepository;
 import com.ermnvldmr.w.repository.VoteRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.IntSupplier;
 
 @Service
+@Timed("w.service")
 public class VoteService {
+    public static final int MAX_BATCH_SIZE = 100;
+
     private final VoteRepository voteRepository;
+    private final PostRepository postRepository;
+    private final DiscussionRepository discussionRepository;
+    private final HotFeedService hotFeedService;
+
+    // Null unless write-behind voting is enabled
+    private final VoteQueue voteQueue;
 
-    public VoteService(VoteRepository voteRepository) {
+    public VoteService(VoteRepository voteRepository,
+                       PostRepository postRepository,
+                       DiscussionRepository discussionRepository,
+                       HotFeedService hotFeedService,
+                       ObjectProvider<VoteQueue> voteQueue) {
         this.voteRepository = voteRepository;
+        this.postRepository = postRepository;
+        this.discussionRepository = discussionRepository;
+        this.hotFeedService = hotFeedService;
+        this.voteQueue = voteQueue.getIfAvailable();
     }
 
     public Vote findByPostAndUser(Post post, User user) {
+        if (voteQueue != null) {
+            VoteQueue.PendingVote pending = voteQueue.findPending(VoteQueue.Target.POST, user.getId(), post.getId());
+            if (pending != null) {
+                return pendingVote(pending, user, vote -> vote.setPost(post));
+            }
+        }
         return voteRepository.findByUserAndPost(user, post).orElse(null);
     }
 
     public Vote findByDiscussionAndUser(Discussion discussion, User user) {
+        if (voteQueue != null) {
+            VoteQueue.PendingVote pending = voteQueue.findPending(VoteQueue.Target.DISCUSSION, user.getId(), discussion.getId());
+            if (pending != null) {
+                return pendingVote(pending, user, vote -> vote.setDiscussion(discussion));
+            }
+        }
         return voteRepository.findByUserAndDiscussion(user, discussion).orElse(null);
     }
 
-    public Vote votePost(Post post, User user, boolean upvote) {
-        Optional<Vote> existingVote = voteRepository.findByUserAndPost(user, post);
-        if (existingVote.isPresent()) {
-            Vote vote = existingVote.get();
-            if (vote.isUpvote() == upvote) {
-                voteRepository.delete(vote); // Toggle off the vote if it’s the same type.
+    // Unsaved vote showing a queued state, so that users read their own votes right away
+    private static Vote pendingVote(VoteQueue.PendingVote pending, User user, Consumer<Vote> target) {
+        if (pending.state() == null) {
+            return null;
+        }
+
+        Vote vote = new Vote();
+        vote.setUser(user);
+        vote.setUpvote(pending.state());
+        target.accept(vote);
+        return vote;
+    }
+
+    /**
+     * Looks up the user's votes on all the given posts and discussions with one query per kind.
+     */
+    public VoteBatch findBatchByUser(User user, Collection<Long> postIds, Collection<Long> discussionIds) {
+        Map<Long, Boolean> posts = new HashMap<>();
+        if (!postIds.isEmpty()) {
+            for (VoteState vote : voteRepository.findPostVotes(user.getId(), postIds)) {
+                posts.put(vote.getTargetId(), vote.isUpvote());
+            }
+            overlayPending(VoteQueue.Target.POST, user.getId(), postIds, posts);
+        }
+
+        Map<Long, Boolean> discussions = new HashMap<>();
+        if (!discussionIds.isEmpty()) {
+            for (VoteState vote : voteRepository.findDiscussionVotes(user.getId(), discussionIds)) {
+                discussions.put(vote.getTargetId(), vote.isUpvote());
+            }
+            overlayPending(VoteQueue.Target.DISCUSSION, user.getId(), discussionIds, discussions);
+        }
+
+        return new VoteBatch(posts, discussions);
+    }
+
+    private void overlayPending(VoteQueue.Target target, long userId, Collection<Long> ids, Map<Long, Boolean> votes) {
+        if (voteQueue == null) {
+            return;
+        }
+
+        for (long id : ids) {
+            VoteQueue.PendingVote pending = voteQueue.findPending(target, userId, id);
+            if (pending != null) {
+                if (pending.state() == null) {
+                    votes.remove(id);
+                } else {
+                    votes.put(id, pending.state());
+                }
+            }
+        }
+    }
+
+    /**
+     * Toggles the user's vote on a post: the same vote again withdraws it, the opposite one
+     * flips it. Runs as a few single-row statements on the (user_id, post_id) unique key
+     * instead of loading the vote, so concurrent toggles cannot duplicate or lose votes.
+     * With write-behind voting enabled the toggle is queued instead, see {@link VoteQueue}.
+     *
+     * @return the resulting vote, or {@code null} if there is no such post.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public VoteResult votePost(long postId, User user, boolean upvote) {
+        long userId = user.getId();
+
+        if (voteQueue != null) {
+            if (!postRepository.existsById(postId)) {
+                return null;
+            }
+            VoteResult queued = voteQueue.vote(VoteQueue.Target.POST, userId, postId, upvote,
+                    () -> voteRepository.findPostUpvote(userId, postId));
+            if (queued != null) {
+                hotFeedService.onVote(postId, queued.getScoreDelta());
+                return queued;
+            }
+        }
+
+        VoteChange change = toggle(upvote,
+                () -> voteRepository.deletePostVote(userId, postId, upvote),
+                () -> voteRepository.flipPostVote(userId, postId, upvote),
+                () -> voteRepository.insertPostVote(userId, postId, upvote));
+
+        if (change == null) {
+            Boolean current = voteRepository.findPostUpvote(userId, postId);
+            if (current == null && !postRepository.existsById(postId)) {
                 return null;
-            } else {
-                vote.setUpvote(upvote); // Change vote type if it’s different.
-                return voteRepository.save(vote);
             }
-        } else {
-            Vote newVote = new Vote();
-            newVote.setUser(user);
-            newVote.setUpvote(upvote);
-            newVote.setPost(post);
-            return voteRepository.save(newVote);
+            return new VoteResult(current, 0);
         }
+
+        postRepository.addVotes(postId, change.upvotes(), change.downvotes());
+        hotFeedService.onVote(postId, change.scoreDelta());
+        return new VoteResult(change.upvote(), change.scoreDelta());
     }
 
-    public Vote voteDiscussion(Discussion discussion, User user, boolean upvote) {
-        Optional<Vote> existingVote = voteRepository.findByUserAndDiscussion(user, discussion);
-        if (existingVote.isPresent()) {
-            Vote vote = existingVote.get();
-            if (vote.isUpvote() == upvote) {
-                voteRepository.delete(vote); // Toggle off the vote if it’s the same type.
+    /**
+     * Same as {@link #votePost}, on the (user_id, discussion_id) unique key.
+     *
+     * @return the resulting vote, or {@code null} if there is no such discussion.
+     */
+    @Transactional(isolation = Isolation.READ_COMMITTED)
+    public VoteResult voteDiscussion(long discussionId, User user, boolean upvote) {
+        long userId = user.getId();
+
+        if (voteQueue != null) {
+            if (!discussionRepository.existsById(discussionId)) {
+                return null;
+            }
+            VoteResult queued = voteQueue.vote(VoteQueue.Target.DISCUSSION, userId, discussionId, upvote,
+                    () -> voteRepository.findDiscussionUpvote(userId, discussionId));
+            if (queued != null) {
+                return queued;
+            }
+        }
+
+        VoteChange change = toggle(upvote,
+                () -> voteRepository.deleteDiscussionVote(userId, discussionId, upvote),
+                () -> voteRepository.flipDiscussionVote(userId, discussionId, upvote),
+                () -> voteRepository.insertDiscussionVote(userId, discussionId, upvote));
+
+        if (change == null) {
+            Boolean current = voteRepository.findDiscussionUpvote(userId, discussionId);
+            if (current == null && !discussionRepository.existsById(discussionId)) {
                 return null;
-            } else {
-                vote.setUpvote(upvote); // Change vote type if it’s different.
-                return voteRepository.save(vote);
             }
-        } else {
-            Vote newVote = new Vote();
-            newVote.setUser(user);
-            newVote.setUpvote(upvote);
-            newVote.setDiscussion(discussion);
-            return voteRepository.save(newVote);
+            return new VoteResult(current, 0);
+        }
+
+        discussionRepository.addVotes(discussionId, change.upvotes(), change.downvotes());
+        return new VoteResult(change.upvote(), change.scoreDelta());
+    }
+
+    /**
+     * The locking DELETE and UPDATE run first: they wait for a concurrent toggle of the same
+     * vote to commit and then see its result, which also keeps them from deadlocking.
+     *
+     * @return the change made, or {@code null} when the INSERT found the vote already cast
+     * by a concurrent request, or found no target to vote on.
+     */
+    private static VoteChange toggle(boolean upvote, IntSupplier delete, IntSupplier flip, IntSupplier insert) {
+        if (delete.getAsInt() > 0) {
+            return new VoteChange(null, upvote ? -1 : 0, upvote ? 0 : -1);
+        }
+        if (flip.getAsInt() > 0) {
+            return new VoteChange(upvote, upvote ? 1 : -1, upvote ? -1 : 1);
+        }
+        if (insert.getAsInt() > 0) {
+            return new VoteChange(upvote, upvote ? 1 : 0, upvote ? 0 : 1);
+        }
+        return null;
+    }
+
+    private record VoteChange(Boolean upvote, long upvotes, long downvotes) {
+        private long scoreDelta() {
+            return upvotes - downvotes;
         }
     }
 }
@@ -0,0 +1,67 @@
+package com.ermnvldmr.w.utils;
+
+import java.nio.ByteBuffer;
+import java.sql.Timestamp;
+import java.util.Base64;
+import java.util.Date;
+
+/**
+ * Keyset pagination position: a sort key plus the row id as a tie-breaker,
+ * serialized into an opaque URL-safe token.
+ */
+public class Cursor {
+    private static final int TOKEN_BYTES = 2 * Long.BYTES;
+
+    private final long position;
+    private final long id;
+
+    public Cursor(long position, long id) {
+        this.position = position;
+        this.id = id;
+    }
+
+    public static Cursor ofTime(Date time, long id) {
+        long micros = Math.floorDiv(time.getTime(), 1000) * 1_000_000;
+        micros += time instanceof Timestamp timestamp
+                ? timestamp.getNanos() / 1000
+                : Math.floorMod(time.getTime(), 1000) * 1000;
+        return new Cursor(micros, id);
+    }
+
+    public long getPosition() {
+        return position;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Timestamp getTime() {
+        Timestamp timestamp = new Timestamp(Math.floorDiv(position, 1_000_000) * 1000);
+        timestamp.setNanos(Math.floorMod(position, 1_000_000) * 1000);
+        return timestamp;
+    }
+
+    public String encode() {
+        byte[] bytes = ByteBuffer.allocate(TOKEN_BYTES).putLong(position).putLong(id).array();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    /**
+     * @return decoded cursor, or {@code null} for a missing token.
+     * @throws IllegalArgumentException if the token is malformed.
+     */
+    public static Cursor decode(String token) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+
+        byte[] bytes = Base64.getUrlDecoder().decode(token);
+        if (bytes.length != TOKEN_BYTES) {
+            throw new IllegalArgumentException("Malformed cursor.");
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new Cursor(buffer.getLong(), buffer.getLong());
+    }
+}
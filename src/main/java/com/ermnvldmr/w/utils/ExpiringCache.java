@@ -0,0 +1,122 @@
+package com.ermnvldmr.w.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+/**
+ * Size-bounded cache whose entries also expire a fixed time after being put.
+ * <p>
+ * Lookups take no lock. Eviction is approximately LRU: once the cache outgrows its bound,
+ * one putting thread drops expired entries and then the least recently read ones, down to
+ * nine tenths of the bound, so the sweep runs once per that many puts.
+ */
+public class ExpiringCache<K, V> {
+    private final long ttlNanos;
+    private final int maxEntries;
+    private final int entriesAfterEviction;
+
+    private final ConcurrentHashMap<K, Entry<V>> entries = new ConcurrentHashMap<>();
+    private final AtomicBoolean evicting = new AtomicBoolean();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public ExpiringCache(Duration ttl, int maxEntries) {
+        this.ttlNanos = ttl.toNanos();
+        this.maxEntries = maxEntries;
+        this.entriesAfterEviction = maxEntries - maxEntries / 10;
+    }
+
+    public V get(K key) {
+        Entry<V> entry = entries.get(key);
+        long now = System.nanoTime();
+        if (entry != null && now - entry.createdAt > ttlNanos) {
+            entries.remove(key, entry);
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+
+        entry.accessedAt = now;
+        hits.increment();
+        return entry.value;
+    }
+
+    public void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime()));
+        // Checked again after a sweep, for the puts of the threads that skipped it meanwhile
+        while (entries.size() > maxEntries && evicting.compareAndSet(false, true)) {
+            try {
+                evict();
+            } finally {
+                evicting.set(false);
+            }
+        }
+    }
+
+    public void invalidateIf(Predicate<V> predicate) {
+        entries.values().removeIf(entry -> predicate.test(entry.value));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private void evict() {
+        long now = System.nanoTime();
+        entries.values().removeIf(entry -> now - entry.createdAt > ttlNanos);
+
+        int excess = entries.size() - entriesAfterEviction;
+        if (excess <= 0) {
+            return;
+        }
+
+        // Access times are copied, readers keep changing them while the candidates are sorted
+        List<Candidate<K, V>> candidates = new ArrayList<>(entries.size());
+        entries.forEach((key, entry) -> candidates.add(new Candidate<>(key, entry, now - entry.accessedAt)));
+        candidates.sort(Comparator.comparingLong(Candidate<K, V>::idleNanos).reversed());
+        for (Candidate<K, V> candidate : candidates.subList(0, Math.min(excess, candidates.size()))) {
+            // Not if it was put again since the snapshot
+            if (entries.remove(candidate.key(), candidate.entry())) {
+                evictions.increment();
+            }
+        }
+    }
+
+    private record Candidate<K, V>(K key, Entry<V> entry, long idleNanos) {
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long createdAt;
+        private volatile long accessedAt;
+
+        private Entry(V value, long createdAt) {
+            this.value = value;
+            this.createdAt = createdAt;
+            this.accessedAt = createdAt;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package com.ermnvldmr.w.utils;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+public class JsonStreams {
+    /**
+     * Writes the elements handed over by {@code producer} as a JSON array, one by one,
+     * so that the response never holds more than the current element in memory.
+     */
+    public static <T> StreamingResponseBody array(ObjectMapper objectMapper, Consumer<Consumer<T>> producer) {
+        // The body is written on another thread, its queries still belong to the request
+        QueryScope scope = QueryScope.current();
+        return out -> {
+            QueryScope.Attachment attachment = QueryScope.attach(scope);
+            try (JsonGenerator generator = objectMapper.createGenerator(out)) {
+                generator.writeStartArray();
+                producer.accept(element -> {
+                    try {
+                        generator.writeObject(element);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                attachment.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,163 @@
+package com.ermnvldmr.w.utils;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Counts the SQL statements executed on the current thread while the scope is open, and the
+ * time they take. Statements are counted on the data source, see {@code QueryMonitoringConfig},
+ * so those of Hibernate and of a {@code JdbcTemplate} alike. Every HTTP request runs in one, and tests can open
+ * their own to lock in how many statements an operation needs:
+ * <pre>{@code
+ * try (QueryScope scope = QueryScope.open()) {
+ *     postService.findFeedPage(null, 20);
+ *     scope.assertStatementCountAtMost(2);
+ * }
+ * }</pre>
+ * Scopes nest, a statement counts in the current scope and all scopes it was opened in.
+ * A scope is not thread safe, it may only be handed over to another thread with {@link #attach}.
+ */
+public final class QueryScope implements AutoCloseable {
+    private static final ThreadLocal<QueryScope> current = new ThreadLocal<>();
+
+    // Further distinct statements are counted together, so loops over varying SQL stay bounded
+    private static final int MAX_DISTINCT_STATEMENTS = 100;
+    private static final String OTHER_STATEMENTS = "(other statements)";
+    private static final int DESCRIBED_SQL_LENGTH = 300;
+
+    private final QueryScope parent;
+
+    // SQL to its executions, in the order first seen
+    private final Map<String, Tally> statements = new LinkedHashMap<>();
+    private int statementCount;
+    private long databaseNanos;
+
+    private QueryScope(QueryScope parent) {
+        this.parent = parent;
+    }
+
+    public static QueryScope open() {
+        QueryScope scope = new QueryScope(current.get());
+        current.set(scope);
+        return scope;
+    }
+
+    public static QueryScope current() {
+        return current.get();
+    }
+
+    /**
+     * Makes {@code scope} current on this thread until the returned attachment is closed,
+     * for work a request hands over to another thread, like a streamed response body.
+     */
+    public static Attachment attach(QueryScope scope) {
+        QueryScope previous = current.get();
+        current.set(scope);
+        return () -> {
+            if (previous == null) {
+                current.remove();
+            } else {
+                current.set(previous);
+            }
+        };
+    }
+
+    // Called by the data source listener once a statement or a batch was executed
+    public static void statementExecuted(String sql, long nanos) {
+        for (QueryScope scope = current.get(); scope != null; scope = scope.parent) {
+            scope.executed(sql, nanos);
+        }
+    }
+
+    public int getStatementCount() {
+        return statementCount;
+    }
+
+    public Duration getDatabaseTime() {
+        return Duration.ofNanos(databaseNanos);
+    }
+
+    /**
+     * Distinct statements, the most executed first.
+     */
+    public List<Statement> getStatements() {
+        List<Statement> result = new ArrayList<>(statements.size());
+        for (Map.Entry<String, Tally> entry : statements.entrySet()) {
+            result.add(new Statement(entry.getKey(), entry.getValue().count, Duration.ofNanos(entry.getValue().nanos)));
+        }
+        result.sort(Comparator.comparingInt(Statement::count).reversed());
+        return result;
+    }
+
+    public QueryScope assertStatementCount(int expected) {
+        if (statementCount != expected) {
+            throw new AssertionError("Expected " + expected + " statements, got " + describe());
+        }
+        return this;
+    }
+
+    public QueryScope assertStatementCountAtMost(int max) {
+        if (statementCount > max) {
+            throw new AssertionError("Expected at most " + max + " statements, got " + describe());
+        }
+        return this;
+    }
+
+    /**
+     * Statement count and database time, followed by one line per distinct statement.
+     */
+    public String describe() {
+        StringBuilder description = new StringBuilder()
+                .append(statementCount).append(" statements in ")
+                .append(getDatabaseTime().toMillis()).append(" ms");
+        for (Statement statement : getStatements()) {
+            String sql = statement.sql().replaceAll("\\s+", " ").trim();
+            description.append(System.lineSeparator())
+                    .append("  ").append(statement.count()).append("x ")
+                    .append(statement.time().toMillis()).append(" ms: ")
+                    .append(sql.length() > DESCRIBED_SQL_LENGTH ? sql.substring(0, DESCRIBED_SQL_LENGTH) + "..." : sql);
+        }
+        return description.toString();
+    }
+
+    @Override
+    public void close() {
+        if (current.get() != this) {
+            return;
+        }
+        if (parent == null) {
+            current.remove();
+        } else {
+            current.set(parent);
+        }
+    }
+
+    private void executed(String sql, long nanos) {
+        Tally tally = statements.get(sql);
+        if (tally == null) {
+            String key = statements.size() < MAX_DISTINCT_STATEMENTS ? sql : OTHER_STATEMENTS;
+            tally = statements.computeIfAbsent(key, ignored -> new Tally());
+        }
+        ++tally.count;
+        tally.nanos += nanos;
+        ++statementCount;
+        databaseNanos += nanos;
+    }
+
+    public record Statement(String sql, int count, Duration time) {
+    }
+
+    public interface Attachment extends AutoCloseable {
+        @Override
+        void close();
+    }
+
+    private static class Tally {
+        private int count;
+        private long nanos;
+    }
+}
@@ -0,0 +1,97 @@
+package com.ermnvldmr.w.config;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.read.ListAppender;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.LoggerFactory;
+import org.springframework.mock.web.MockAsyncContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QueryBudgetFilterTest {
+    private final Logger logger = (Logger) LoggerFactory.getLogger(QueryBudgetFilter.class);
+    private final ListAppender<ILoggingEvent> appender = new ListAppender<>();
+
+    private QueryBudgetFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        PropertiesConfig propertiesConfig = new PropertiesConfig();
+        // Every request is slow, so every check is logged
+        propertiesConfig.setSlowRequestThreshold(Duration.ofNanos(1));
+        filter = new QueryBudgetFilter(propertiesConfig);
+
+        appender.start();
+        logger.addAppender(appender);
+    }
+
+    @AfterEach
+    void tearDown() {
+        logger.detachAppender(appender);
+    }
+
+    @Test
+    void reportsSynchronousRequests() throws Exception {
+        filter.doFilter(new MockHttpServletRequest("GET", "/api/posts"), new MockHttpServletResponse(),
+                (request, response) -> {
+                });
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.getFirst().getFormattedMessage().startsWith("GET /api/posts took"));
+    }
+
+    @Test
+    void reportsTimedOutStreamsOnce() throws Exception {
+        MockAsyncContext asyncContext = startStream();
+
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onTimeout(new AsyncEvent(asyncContext));
+        }
+        asyncContext.complete();
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.getFirst().getFormattedMessage().startsWith("GET /api/feed (timed out) took"));
+    }
+
+    @Test
+    void reportsFailedStreamsOnce() throws Exception {
+        MockAsyncContext asyncContext = startStream();
+
+        for (AsyncListener listener : asyncContext.getListeners()) {
+            listener.onError(new AsyncEvent(asyncContext, new IOException("Broken pipe")));
+        }
+        asyncContext.complete();
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.getFirst().getFormattedMessage().startsWith("GET /api/feed (failed) took"));
+    }
+
+    @Test
+    void reportsCompletedStreams() throws Exception {
+        MockAsyncContext asyncContext = startStream();
+        assertTrue(appender.list.isEmpty());
+
+        asyncContext.complete();
+
+        assertEquals(1, appender.list.size());
+        assertTrue(appender.list.getFirst().getFormattedMessage().startsWith("GET /api/feed took"));
+    }
+
+    private MockAsyncContext startStream() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/feed");
+        request.setAsyncSupported(true);
+        filter.doFilter(request, new MockHttpServletResponse(), (servletRequest, servletResponse) -> request.startAsync());
+        return (MockAsyncContext) request.getAsyncContext();
+    }
+}
@@ -0,0 +1,100 @@
+package com.ermnvldmr.w.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MediaControllerTest {
+    private static final String E_TAG = "\"" + "ab".repeat(32) + ".png\"";
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @Test
+    void parsesSatisfiableRanges() {
+        assertArrayEquals(new long[]{0, 100}, MediaController.parseRange("bytes=0-99", 1000));
+        assertArrayEquals(new long[]{900, 1000}, MediaController.parseRange("bytes=900-5000", 1000));
+        // Open-ended
+        assertArrayEquals(new long[]{900, 1000}, MediaController.parseRange("bytes=900-", 1000));
+        // Suffix, also longer than the file
+        assertArrayEquals(new long[]{900, 1000}, MediaController.parseRange("bytes=-100", 1000));
+        assertArrayEquals(new long[]{0, 1000}, MediaController.parseRange("bytes=-5000", 1000));
+    }
+
+    @Test
+    void rejectsUnsatisfiableRanges() {
+        assertNull(MediaController.parseRange("bytes=1000-", 1000));
+        assertNull(MediaController.parseRange("bytes=1000-1999", 1000));
+        assertNull(MediaController.parseRange("bytes=-0", 1000));
+        assertNull(MediaController.parseRange("bytes=-100", 0));
+    }
+
+    @Test
+    void ignoresUnsupportedOrMalformedRanges() {
+        assertArrayEquals(new long[0], MediaController.parseRange("items=0-99", 1000));
+        assertArrayEquals(new long[0], MediaController.parseRange("bytes=0-99,200-299", 1000));
+        assertArrayEquals(new long[0], MediaController.parseRange("bytes=500-100", 1000));
+        assertArrayEquals(new long[0], MediaController.parseRange("bytes=first-last", 1000));
+        assertArrayEquals(new long[0], MediaController.parseRange("bytes=100", 1000));
+    }
+
+    @Test
+    void notModifiedWhenTheETagMatches() {
+        assertTrue(MediaController.isNotModified(request(HttpHeaders.IF_NONE_MATCH, E_TAG), E_TAG, LAST_MODIFIED));
+        assertTrue(MediaController.isNotModified(request(HttpHeaders.IF_NONE_MATCH, "\"other\", W/" + E_TAG),
+                E_TAG, LAST_MODIFIED));
+        assertTrue(MediaController.isNotModified(request(HttpHeaders.IF_NONE_MATCH, "*"), E_TAG, LAST_MODIFIED));
+
+        // Same content under another extension
+        String jpegETag = E_TAG.replace(".png", ".jpg");
+        assertFalse(MediaController.isNotModified(request(HttpHeaders.IF_NONE_MATCH, jpegETag), E_TAG, LAST_MODIFIED));
+    }
+
+    @Test
+    void notModifiedSinceTheDate() {
+        assertTrue(MediaController.isNotModified(
+                request(HttpHeaders.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED)), E_TAG, LAST_MODIFIED));
+        assertFalse(MediaController.isNotModified(
+                request(HttpHeaders.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED - 1000)), E_TAG, LAST_MODIFIED));
+        assertFalse(MediaController.isNotModified(
+                request(HttpHeaders.IF_MODIFIED_SINCE, "yesterday"), E_TAG, LAST_MODIFIED));
+        assertFalse(MediaController.isNotModified(new MockHttpServletRequest(), E_TAG, LAST_MODIFIED));
+
+        // If-None-Match takes precedence over If-Modified-Since
+        MockHttpServletRequest request = request(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED));
+        assertFalse(MediaController.isNotModified(request, E_TAG, LAST_MODIFIED));
+    }
+
+    @Test
+    void rangeAppliesWhileIfRangeMatches() {
+        assertTrue(MediaController.isRangeApplicable(new MockHttpServletRequest(), E_TAG, LAST_MODIFIED));
+
+        assertTrue(MediaController.isRangeApplicable(request(HttpHeaders.IF_RANGE, E_TAG), E_TAG, LAST_MODIFIED));
+        assertFalse(MediaController.isRangeApplicable(request(HttpHeaders.IF_RANGE, "\"other\""), E_TAG, LAST_MODIFIED));
+        // Weak tags never match
+        assertFalse(MediaController.isRangeApplicable(request(HttpHeaders.IF_RANGE, "W/" + E_TAG), E_TAG, LAST_MODIFIED));
+
+        assertTrue(MediaController.isRangeApplicable(
+                request(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED)), E_TAG, LAST_MODIFIED));
+        assertFalse(MediaController.isRangeApplicable(
+                request(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED - 1000)), E_TAG, LAST_MODIFIED));
+    }
+
+    private static MockHttpServletRequest request(String header, String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(header, value);
+        return request;
+    }
+
+    private static String httpDate(long millis) {
+        return DateTimeFormatter.RFC_1123_DATE_TIME.format(Instant.ofEpochMilli(millis).atOffset(ZoneOffset.UTC));
+    }
+}
@@ -0,0 +1,136 @@
+package com.ermnvldmr.w.controller;
+
+import com.ermnvldmr.w.domain.User;
+import com.ermnvldmr.w.repository.UserRepository;
+import com.ermnvldmr.w.service.UserService;
+import com.jayway.jsonpath.JsonPath;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = {"config.mediaMaxFileSize=4KB", "config.mediaMaxRequestSize=8KB"})
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class PostControllerTest {
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private UserService userService;
+
+    private String jwt;
+
+    @BeforeEach
+    void signIn() {
+        User user = userService.findByLogin("writer");
+        if (user == null) {
+            user = new User();
+            user.setLogin("writer");
+            user.setName("Writer");
+            user = userRepository.save(user);
+        }
+        jwt = userService.createUserJwt(user);
+    }
+
+    @Test
+    void writesPostWithMedia() throws Exception {
+        byte[] image = png();
+
+        String body = mockMvc.perform(multipart("/api/posts")
+                        .file(new MockMultipartFile("media", "dot.png", MediaType.IMAGE_PNG_VALUE, image))
+                        .param("title", "Title")
+                        .param("text", "Text")
+                        .param("jwt", jwt))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.title").value("Title"))
+                .andExpect(jsonPath("$.media.length()").value(1))
+                .andReturn().getResponse().getContentAsString();
+
+        String key = JsonPath.read(body, "$.media[0]");
+        mockMvc.perform(get("/api/media/" + key))
+                .andExpect(status().isOk())
+                .andExpect(content().bytes(image));
+    }
+
+    @Test
+    void writesPostWithoutMedia() throws Exception {
+        mockMvc.perform(multipart("/api/posts")
+                        .param("title", "Title")
+                        .param("text", "Text")
+                        .param("jwt", jwt))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.media.length()").value(0));
+    }
+
+    @Test
+    void rejectsMediaOverTheConfiguredLimit() throws Exception {
+        // MockMvc does not enforce the servlet limits, so MediaService checks the size
+        mockMvc.perform(multipart("/api/posts")
+                        .file(new MockMultipartFile("media", "big.png", MediaType.IMAGE_PNG_VALUE, new byte[5 * 1024]))
+                        .param("title", "Title")
+                        .param("text", "Text")
+                        .param("jwt", jwt))
+                .andExpect(status().isPayloadTooLarge());
+    }
+
+    @Test
+    void rejectsMediaOverTheServletLimit() {
+        MultiValueMap<String, Object> form = new LinkedMultiValueMap<>();
+        form.add("title", "Title");
+        form.add("text", "Text");
+        form.add("media", new ByteArrayResource(new byte[5 * 1024]) {
+            @Override
+            public String getFilename() {
+                return "big.png";
+            }
+        });
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.MULTIPART_FORM_DATA);
+
+        ResponseEntity<String> response = restTemplate.postForEntity("/api/posts?jwt=" + jwt,
+                new HttpEntity<>(form, headers), String.class);
+
+        assertEquals(413, response.getStatusCode().value());
+        assertEquals("Media files are too large.", response.getBody());
+    }
+
+    private static byte[] png() throws IOException {
+        BufferedImage image = new BufferedImage(8, 8, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(3, 4, 0xff0000);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}
@@ -0,0 +1,94 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.config.PropertiesConfig;
+import com.ermnvldmr.w.utils.QueryScope;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "config.viewDedupStore=database")
+@ActiveProfiles("test")
+class DatabaseViewDedupStoreTest {
+    @Autowired
+    private DatabaseViewDedupStore viewDedupStore;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PropertiesConfig propertiesConfig;
+
+    @Test
+    void viewIsCountedOncePerWindow() {
+        long postId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+
+        assertTrue(viewDedupStore.tryRecordView(postId, "viewer"));
+        assertFalse(viewDedupStore.tryRecordView(postId, "viewer"));
+        assertTrue(viewDedupStore.tryRecordView(postId, "another viewer"));
+    }
+
+    @Test
+    void viewFailedInTheDatabaseIsNotRemembered() {
+        FailingJdbcTemplate failingJdbcTemplate = new FailingJdbcTemplate(jdbcTemplate);
+        DatabaseViewDedupStore store = new DatabaseViewDedupStore(propertiesConfig, failingJdbcTemplate);
+        long postId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+
+        failingJdbcTemplate.failing = true;
+        assertThrows(DataAccessException.class, () -> store.tryRecordView(postId, "viewer"));
+
+        failingJdbcTemplate.failing = false;
+        assertTrue(store.tryRecordView(postId, "viewer"));
+        assertFalse(store.tryRecordView(postId, "viewer"));
+    }
+
+    @Test
+    void sizeIsCountedWithoutScanningOnEveryRead() {
+        viewDedupStore.purgeExpired();
+        long size = viewDedupStore.getSize();
+        assertEquals(count(), size);
+
+        long postId = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+        viewDedupStore.tryRecordView(postId, "first");
+        viewDedupStore.tryRecordView(postId, "second");
+
+        try (QueryScope scope = QueryScope.open()) {
+            assertEquals(size + 2, viewDedupStore.getSize());
+            scope.assertStatementCount(0);
+        }
+
+        viewDedupStore.purgeExpired();
+        assertEquals(count(), viewDedupStore.getSize());
+    }
+
+    private long count() {
+        Long count = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM view_dedup_entry", Long.class);
+        return count == null ? 0 : count;
+    }
+
+    private static class FailingJdbcTemplate extends JdbcTemplate {
+        private boolean failing;
+
+        private FailingJdbcTemplate(JdbcTemplate jdbcTemplate) {
+            super(jdbcTemplate.getDataSource());
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            if (failing) {
+                throw new QueryTimeoutException(sql);
+            }
+            return super.update(sql, args);
+        }
+    }
+}
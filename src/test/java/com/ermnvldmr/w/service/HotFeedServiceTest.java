@@ -0,0 +1,89 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.config.PropertiesConfig;
+import com.ermnvldmr.w.domain.Post;
+import com.ermnvldmr.w.domain.User;
+import com.ermnvldmr.w.dto.PostDto;
+import com.ermnvldmr.w.repository.PostRepository;
+import com.ermnvldmr.w.repository.UserRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class HotFeedServiceTest {
+    @Autowired
+    private PropertiesConfig propertiesConfig;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private ViewCounter viewCounter;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void eventsDuringReloadAreKept() {
+        long cold = writePost();
+        long deleted = writePost();
+        long newest = writePost();
+
+        HotFeedService[] hotFeedService = new HotFeedService[1];
+        hotFeedService[0] = new HotFeedService(propertiesConfig, duringHotCandidatesQuery(() -> {
+            hotFeedService[0].onVote(cold, 5);
+            hotFeedService[0].onPostDeleted(deleted);
+        }), viewCounter, jdbcTemplate);
+
+        hotFeedService[0].reload();
+
+        List<Long> top = hotFeedService[0].findTop(1000).stream().map(PostDto::getId).toList();
+        assertTrue(top.indexOf(cold) < top.indexOf(newest), top::toString);
+        assertFalse(top.contains(deleted), top::toString);
+    }
+
+    private PostRepository duringHotCandidatesQuery(Runnable events) {
+        return (PostRepository) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{PostRepository.class},
+                (proxy, method, args) -> {
+                    try {
+                        Object result = method.invoke(postRepository, args);
+                        if (method.getName().equals("findHotCandidates")) {
+                            // Read already, but not swapped in yet
+                            events.run();
+                        }
+                        return result;
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    private long writePost() {
+        User author = userRepository.findAll().stream().findFirst().orElseGet(() -> {
+            User user = new User();
+            user.setLogin("author");
+            user.setName("Author");
+            return userRepository.save(user);
+        });
+
+        Post post = new Post();
+        post.setTitle("Title");
+        post.setText("Text");
+        post.setUser(author);
+        return postRepository.save(post).getId();
+    }
+}
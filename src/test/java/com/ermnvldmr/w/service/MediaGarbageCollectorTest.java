@@ -0,0 +1,130 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.repository.MediaObjectRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MediaGarbageCollectorTest {
+    @TempDir
+    private static Path mediaDir;
+
+    @DynamicPropertySource
+    static void mediaDir(DynamicPropertyRegistry registry) {
+        registry.add("MEDIA_DIR", mediaDir::toString);
+    }
+
+    @Autowired
+    private MediaGarbageCollector mediaGarbageCollector;
+
+    @Autowired
+    private MediaService mediaService;
+
+    @Autowired
+    private MediaObjectRepository mediaObjectRepository;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void deletesUploadsNoPostReferences() throws IOException {
+        List<MultipartFile> uploads = uploads();
+        String key = mediaService.storeAll(uploads).getFirst();
+        age(key);
+
+        collectAllShards();
+
+        assertFalse(Files.exists(mediaService.resolve(key)));
+        assertFalse(mediaObjectRepository.existsById(key));
+    }
+
+    @Test
+    void keepsReferencedMedia() throws IOException {
+        List<MultipartFile> uploads = uploads();
+        String key = reference(uploads);
+        age(key);
+
+        collectAllShards();
+
+        assertTrue(Files.exists(mediaService.resolve(key)));
+        assertEquals(1, mediaObjectRepository.findById(key).orElseThrow().getRefCount());
+    }
+
+    @Test
+    void deletesMediaReleasedBeforeTheGracePeriod() throws IOException {
+        List<MultipartFile> uploads = uploads();
+        String key = reference(uploads);
+        mediaService.releaseAll(List.of(key));
+        jdbcTemplate.update("UPDATE media_object SET update_time=? WHERE media_key=?",
+                Timestamp.from(Instant.now().minus(Duration.ofDays(2))), key);
+        age(key);
+
+        collectAllShards();
+
+        assertFalse(Files.exists(mediaService.resolve(key)));
+        assertFalse(mediaObjectRepository.existsById(key));
+    }
+
+    @Test
+    void referencingStoresCollectedFilesAgain() throws IOException {
+        List<MultipartFile> uploads = uploads();
+        String key = mediaService.storeAll(uploads).getFirst();
+        // Collected between storing and referencing
+        Files.delete(mediaService.resolve(key));
+
+        transactionTemplate.executeWithoutResult(status -> mediaService.addReferences(List.of(key), uploads));
+
+        assertArrayEquals(uploads.getFirst().getBytes(), Files.readAllBytes(mediaService.resolve(key)));
+        assertEquals(1, mediaObjectRepository.findById(key).orElseThrow().getRefCount());
+    }
+
+    // A run that starts with the legacy sweep of the previous walk walks no shards
+    private void collectAllShards() {
+        mediaGarbageCollector.collect();
+        mediaGarbageCollector.collect();
+    }
+
+    private String reference(List<MultipartFile> uploads) throws IOException {
+        List<String> keys = mediaService.storeAll(uploads);
+        transactionTemplate.executeWithoutResult(status -> mediaService.addReferences(keys, uploads));
+        return keys.getFirst();
+    }
+
+    private void age(String key) throws IOException {
+        Files.setLastModifiedTime(mediaService.resolve(key), FileTime.from(Instant.now().minus(Duration.ofDays(2))));
+    }
+
+    private static List<MultipartFile> uploads() {
+        byte[] content = UUID.randomUUID().toString().getBytes(StandardCharsets.US_ASCII);
+        return List.of(new MockMultipartFile("media", "note.txt", "text/plain", content));
+    }
+}
@@ -0,0 +1,74 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.domain.MediaVariant;
+import com.ermnvldmr.w.repository.MediaVariantRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.ActiveProfiles;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "config.mediaVariantWidths=100")
+@ActiveProfiles("test")
+class MediaVariantServiceTest {
+    @Autowired
+    private MediaVariantService mediaVariantService;
+
+    @Autowired
+    private MediaService mediaService;
+
+    @Autowired
+    private MediaVariantRepository mediaVariantRepository;
+
+    @Test
+    void sameContentUnderAnotherExtensionGetsItsOwnVariants() throws Exception {
+        byte[] image = png();
+        String pngKey = mediaService.storeAll(List.of(
+                new MockMultipartFile("media", "a.png", "image/png", image))).getFirst();
+        String jpgKey = mediaService.storeAll(List.of(
+                new MockMultipartFile("media", "a.jpg", "image/jpeg", image))).getFirst();
+        assertEquals(pngKey.substring(0, 64), jpgKey.substring(0, 64));
+
+        mediaVariantService.submitAll(List.of(pngKey));
+        MediaVariant pngVariant = awaitVariant(pngKey);
+        mediaVariantService.submitAll(List.of(jpgKey));
+        MediaVariant jpgVariant = awaitVariant(jpgKey);
+
+        assertNotEquals(pngVariant.getVariantKey(), jpgVariant.getVariantKey());
+        assertEquals(100, jpgVariant.getWidth());
+        assertTrue(Files.exists(mediaVariantService.resolve(pngVariant.getVariantKey())));
+        assertTrue(Files.exists(mediaVariantService.resolve(jpgVariant.getVariantKey())));
+    }
+
+    private MediaVariant awaitVariant(String mediaKey) throws InterruptedException {
+        for (int attempt = 0; attempt < 200; ++attempt) {
+            List<MediaVariant> variants = mediaVariantRepository.findAllByMediaKey(mediaKey);
+            if (!variants.isEmpty()) {
+                return variants.getFirst();
+            }
+            Thread.sleep(50);
+        }
+        throw new AssertionError("No variant of " + mediaKey + " was generated");
+    }
+
+    private static byte[] png() throws IOException {
+        BufferedImage image = new BufferedImage(200, 150, BufferedImage.TYPE_INT_RGB);
+        // A random pixel, so that the content hash is new in every run
+        image.setRGB(1, 1, ThreadLocalRandom.current().nextInt(0x1000000));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ImageIO.write(image, "png", output);
+        return output.toByteArray();
+    }
+}
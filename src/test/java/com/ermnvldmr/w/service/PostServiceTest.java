@@ -0,0 +1,88 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.domain.Post;
+import com.ermnvldmr.w.domain.User;
+import com.ermnvldmr.w.repository.PostRepository;
+import com.ermnvldmr.w.repository.UserRepository;
+import com.ermnvldmr.w.utils.QueryScope;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = "config.viewDedupStore=database")
+@ActiveProfiles("test")
+class PostServiceTest {
+    @Autowired
+    private PostService postService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    private User author;
+
+    @BeforeEach
+    void findAuthor() {
+        author = userRepository.findAll().stream().findFirst().orElseGet(() -> {
+            User user = new User();
+            user.setLogin("author");
+            user.setName("Author");
+            return userRepository.save(user);
+        });
+    }
+
+    @Test
+    void feedPageStatementsDoNotGrowWithThePosts() {
+        writePosts(2);
+        int fewPosts;
+        try (QueryScope scope = QueryScope.open()) {
+            postService.findFeedPage(null, 20);
+            scope.assertStatementCountAtMost(2);
+            fewPosts = scope.getStatementCount();
+            assertTrue(fewPosts > 0, scope::describe);
+        }
+
+        writePosts(30);
+        try (QueryScope scope = QueryScope.open()) {
+            assertEquals(20, postService.findFeedPage(null, 20).getItems().size());
+            scope.assertStatementCount(fewPosts);
+        }
+    }
+
+    @Test
+    void viewDedupStatementsAreCounted() {
+        long postId = writePosts(1);
+
+        try (QueryScope scope = QueryScope.open()) {
+            postService.getAndIncrementViewCount(postId, "viewer");
+            assertTrue(scope.getStatements().stream()
+                            .anyMatch(statement -> statement.sql().startsWith("INSERT IGNORE INTO view_dedup_entry")),
+                    scope::describe);
+        }
+
+        // Rejected by the near cache without a round trip
+        try (QueryScope scope = QueryScope.open()) {
+            postService.getAndIncrementViewCount(postId, "viewer");
+            scope.assertStatementCount(1);
+        }
+    }
+
+    private long writePosts(int count) {
+        long postId = 0;
+        for (int i = 0; i < count; ++i) {
+            Post post = new Post();
+            post.setTitle("Title " + i);
+            post.setText("Text " + i);
+            post.setUser(author);
+            postId = postRepository.save(post).getId();
+        }
+        return postId;
+    }
+}
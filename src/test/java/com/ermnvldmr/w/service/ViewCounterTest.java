@@ -0,0 +1,96 @@
+package com.ermnvldmr.w.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ViewCounterTest {
+    @Test
+    void flushesViewsPerPost() {
+        RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+        ViewCounter viewCounter = new ViewCounter(jdbcTemplate);
+
+        viewCounter.increment(1);
+        viewCounter.increment(1);
+        viewCounter.increment(2);
+        assertEquals(2, viewCounter.getPendingViews(1));
+
+        viewCounter.flush();
+
+        assertEquals(Map.of(1L, 2L, 2L, 1L), jdbcTemplate.views);
+        assertEquals(0, viewCounter.getPendingViews());
+    }
+
+    @Test
+    void idlePostsAreDroppedAfterSomeFlushes() {
+        ViewCounter viewCounter = new ViewCounter(new RecordingJdbcTemplate());
+        viewCounter.increment(1);
+
+        viewCounter.flush();
+        assertEquals(1, viewCounter.getPendingPosts());
+
+        for (int i = 0; i < 3; ++i) {
+            viewCounter.flush();
+        }
+        assertEquals(0, viewCounter.getPendingPosts());
+    }
+
+    @Test
+    void noViewIsLostToConcurrentFlushes() throws InterruptedException {
+        RecordingJdbcTemplate jdbcTemplate = new RecordingJdbcTemplate();
+        ViewCounter viewCounter = new ViewCounter(jdbcTemplate);
+        int threads = 8;
+        int viewsPerThread = 50_000;
+
+        AtomicBoolean viewing = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (viewing.get()) {
+                viewCounter.flush();
+            }
+        });
+        flusher.start();
+
+        CountDownLatch done = new CountDownLatch(threads);
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; ++t) {
+                executor.execute(() -> {
+                    for (int i = 0; i < viewsPerThread; ++i) {
+                        // Few posts, each viewed rarely enough to be dropped between views now and then
+                        viewCounter.increment(i % 64);
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(1, TimeUnit.MINUTES));
+        }
+        viewing.set(false);
+        flusher.join();
+        viewCounter.flush();
+
+        long flushed = jdbcTemplate.views.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals((long) threads * viewsPerThread, flushed);
+    }
+
+    private static class RecordingJdbcTemplate extends JdbcTemplate {
+        private final Map<Long, Long> views = new ConcurrentHashMap<>();
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            for (Object[] args : batchArgs) {
+                views.merge((Long) args[1], (Long) args[0], Long::sum);
+            }
+            return new int[batchArgs.size()];
+        }
+    }
+}
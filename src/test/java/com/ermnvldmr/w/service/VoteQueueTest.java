@@ -0,0 +1,283 @@
+package com.ermnvldmr.w.service;
+
+import com.ermnvldmr.w.config.PropertiesConfig;
+import com.ermnvldmr.w.domain.Post;
+import com.ermnvldmr.w.domain.User;
+import com.ermnvldmr.w.repository.PostRepository;
+import com.ermnvldmr.w.repository.UserRepository;
+import com.ermnvldmr.w.service.VoteQueue.Target;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.TransientDataAccessResourceException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class VoteQueueTest {
+    private static final AtomicInteger logins = new AtomicInteger();
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private PostRepository postRepository;
+
+    @TempDir
+    private Path directory;
+
+    private final List<VoteQueue> queues = new ArrayList<>();
+
+    @AfterEach
+    void shutdownQueues() throws IOException {
+        for (VoteQueue queue : queues.reversed()) {
+            queue.shutdown();
+        }
+    }
+
+    @Test
+    void flushWritesVotesAndCounters() throws IOException {
+        VoteQueue queue = newQueue(jdbcTemplate);
+        long upvoter = newUser();
+        long downvoter = newUser();
+        long post = newPost(upvoter);
+
+        queue.vote(Target.POST, upvoter, post, true, () -> null);
+        queue.vote(Target.POST, downvoter, post, false, () -> null);
+        assertEquals(2, queue.getPendingVotes());
+
+        queue.flush();
+
+        assertEquals(0, queue.getPendingVotes());
+        assertEquals(true, storedVote(upvoter, post));
+        assertEquals(false, storedVote(downvoter, post));
+        assertEquals(List.of(1L, 1L), counters(post));
+    }
+
+    @Test
+    void togglesCoalesceIntoOneWrite() throws IOException {
+        VoteQueue queue = newQueue(jdbcTemplate);
+        long user = newUser();
+        long post = newPost(user);
+
+        queue.vote(Target.POST, user, post, true, () -> null);
+        queue.vote(Target.POST, user, post, true, () -> null);
+        queue.vote(Target.POST, user, post, false, () -> null);
+        assertEquals(1, queue.getPendingVotes());
+        assertEquals(2, queue.getCoalescedVotes());
+
+        queue.flush();
+
+        assertEquals(false, storedVote(user, post));
+        assertEquals(List.of(0L, 1L), counters(post));
+    }
+
+    @Test
+    void votesOfDeletedUsersAreDropped() throws IOException {
+        VoteQueue queue = newQueue(jdbcTemplate);
+        long deleted = newUser();
+        long kept = newUser();
+        long post = newPost(kept);
+
+        queue.vote(Target.POST, deleted, post, true, () -> null);
+        queue.vote(Target.POST, kept, post, true, () -> null);
+        userRepository.deleteById(deleted);
+
+        queue.flush();
+
+        assertEquals(0, queue.getPendingVotes());
+        assertEquals(1, queue.getDroppedVotes());
+        assertNull(storedVote(deleted, post));
+        assertEquals(true, storedVote(kept, post));
+        assertEquals(List.of(1L, 0L), counters(post));
+
+        // Nothing is left in the log to replay either
+        assertEquals(0, newQueue(jdbcTemplate).getPendingVotes());
+    }
+
+    @Test
+    void staleStoredVoteIsNotCountedTwice() throws IOException {
+        VoteQueue queue = newQueue(jdbcTemplate);
+        long user = newUser();
+        long post = newPost(user);
+
+        queue.vote(Target.POST, user, post, true, () -> null);
+        // Written behind the queue's back after it read the vote
+        storeVote(user, post, true);
+
+        queue.flush();
+
+        assertEquals(1, jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM vote WHERE user_id=? AND post_id=?", Integer.class, user, post));
+        assertEquals(List.of(1L, 0L), counters(post));
+    }
+
+    @Test
+    void staleWithdrawalOfVanishedVoteChangesNothing() throws IOException {
+        VoteQueue queue = newQueue(jdbcTemplate);
+        long user = newUser();
+        long post = newPost(user);
+        storeVote(user, post, true);
+
+        queue.vote(Target.POST, user, post, true, () -> true);
+        jdbcTemplate.update("DELETE FROM vote WHERE user_id=? AND post_id=?", user, post);
+        postRepository.addVotes(post, -1, 0);
+
+        queue.flush();
+
+        assertNull(storedVote(user, post));
+        assertEquals(List.of(0L, 0L), counters(post));
+    }
+
+    @Test
+    void replayRestoresQueuedVotes() throws IOException {
+        VoteQueue crashed = newQueue(jdbcTemplate);
+        long user = newUser();
+        long post = newPost(user);
+        crashed.vote(Target.POST, user, post, false, () -> null);
+
+        VoteQueue restarted = newQueue(jdbcTemplate);
+        assertEquals(new VoteQueue.PendingVote(null, false), restarted.findPending(Target.POST, user, post));
+
+        restarted.flush();
+
+        assertEquals(false, storedVote(user, post));
+        assertEquals(List.of(0L, 1L), counters(post));
+    }
+
+    @Test
+    void votesAreRequeuedWhileTheDatabaseFails() throws IOException {
+        FailingJdbcTemplate failing = new FailingJdbcTemplate(dataSource);
+        VoteQueue queue = newQueue(failing);
+        long user = newUser();
+        long post = newPost(user);
+        queue.vote(Target.POST, user, post, true, () -> null);
+
+        failing.failures = Integer.MAX_VALUE;
+        queue.flush();
+
+        assertEquals(1, queue.getPendingVotes());
+        assertEquals(0, queue.getDroppedVotes());
+        assertNull(storedVote(user, post));
+
+        failing.failures = 0;
+        queue.flush();
+
+        assertEquals(0, queue.getPendingVotes());
+        assertEquals(true, storedVote(user, post));
+        assertEquals(List.of(1L, 0L), counters(post));
+    }
+
+    @Test
+    void failedBatchIsRetriedOneByOne() throws IOException {
+        FailingJdbcTemplate failing = new FailingJdbcTemplate(dataSource);
+        failing.failure = () -> new DataIntegrityViolationException("Duplicate entry");
+        VoteQueue queue = newQueue(failing);
+        long first = newUser();
+        long second = newUser();
+        long post = newPost(first);
+        queue.vote(Target.POST, first, post, true, () -> null);
+        queue.vote(Target.POST, second, post, true, () -> null);
+
+        failing.failures = 1;
+        queue.flush();
+
+        assertEquals(0, queue.getPendingVotes());
+        assertEquals(0, queue.getDroppedVotes());
+        assertEquals(true, storedVote(first, post));
+        assertEquals(true, storedVote(second, post));
+        assertEquals(List.of(2L, 0L), counters(post));
+    }
+
+    private VoteQueue newQueue(JdbcTemplate template) throws IOException {
+        PropertiesConfig propertiesConfig = new PropertiesConfig();
+        propertiesConfig.setVoteQueueCapacity(1000);
+        propertiesConfig.setVoteLogFile(directory.resolve("vote-queue.log").toString());
+
+        VoteQueue queue = new VoteQueue(propertiesConfig, template, transactionTemplate);
+        queue.replay();
+        queues.add(queue);
+        return queue;
+    }
+
+    private long newUser() {
+        User user = new User();
+        int number = logins.incrementAndGet();
+        StringBuilder login = new StringBuilder("user");
+        for (; number > 0; number /= 26) {
+            login.append((char) ('a' + number % 26));
+        }
+        user.setLogin(login.toString());
+        user.setName(login.toString());
+        return userRepository.save(user).getId();
+    }
+
+    private long newPost(long userId) {
+        Post post = new Post();
+        post.setTitle("Title");
+        post.setText("Text");
+        post.setUser(userRepository.findById(userId).orElseThrow());
+        return postRepository.save(post).getId();
+    }
+
+    private void storeVote(long userId, long postId, boolean upvote) {
+        jdbcTemplate.update("INSERT INTO vote (id, user_id, post_id, upvote) VALUES (NEXT VALUE FOR vote_seq, ?, ?, ?)",
+                userId, postId, upvote);
+        postRepository.addVotes(postId, upvote ? 1 : 0, upvote ? 0 : 1);
+    }
+
+    private Boolean storedVote(long userId, long postId) {
+        return jdbcTemplate.query("SELECT upvote FROM vote WHERE user_id=? AND post_id=?",
+                result -> result.next() ? result.getBoolean(1) : null, userId, postId);
+    }
+
+    private List<Long> counters(long postId) {
+        return jdbcTemplate.queryForObject("SELECT upvotes, downvotes FROM post WHERE id=?",
+                (result, row) -> List.of(result.getLong(1), result.getLong(2)), postId);
+    }
+
+    // Fails the next batch statements, as a lost connection or a conflicting write would
+    private static class FailingJdbcTemplate extends JdbcTemplate {
+        private volatile int failures;
+        private volatile Supplier<RuntimeException> failure =
+                () -> new TransientDataAccessResourceException("Connection lost");
+
+        FailingJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public int[] batchUpdate(String sql, List<Object[]> batchArgs) {
+            if (failures > 0) {
+                --failures;
+                throw failure.get();
+            }
+            return super.batchUpdate(sql, batchArgs);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.ermnvldmr.w.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ExpiringCacheTest {
+    @Test
+    void entriesExpireAfterTheTtl() throws InterruptedException {
+        ExpiringCache<String, String> cache = new ExpiringCache<>(Duration.ofMillis(20), 100);
+        cache.put("key", "value");
+        assertEquals("value", cache.get("key"));
+
+        Thread.sleep(40);
+
+        assertNull(cache.get("key"));
+        assertEquals(0, cache.size());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    @Test
+    void leastRecentlyReadEntriesAreEvicted() throws InterruptedException {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(Duration.ofMinutes(1), 100);
+        for (int i = 0; i < 100; ++i) {
+            cache.put(i, i);
+        }
+        Thread.sleep(1);
+        for (int i = 0; i < 10; ++i) {
+            assertNotNull(cache.get(i));
+        }
+
+        cache.put(100, 100);
+
+        // Trimmed to nine tenths of the bound, the entries read last are kept
+        assertEquals(90, cache.size());
+        assertEquals(11, cache.getEvictions());
+        for (int i = 0; i < 10; ++i) {
+            assertEquals(i, cache.get(i));
+        }
+        assertEquals(100, cache.get(100));
+    }
+
+    @Test
+    void invalidatesMatchingValues() {
+        ExpiringCache<String, Integer> cache = new ExpiringCache<>(Duration.ofMinutes(1), 100);
+        cache.put("one", 1);
+        cache.put("two", 2);
+
+        cache.invalidateIf(value -> value == 1);
+
+        assertNull(cache.get("one"));
+        assertEquals(2, cache.get("two"));
+    }
+
+    @Test
+    void staysBoundedUnderConcurrentPuts() throws InterruptedException {
+        ExpiringCache<Integer, Integer> cache = new ExpiringCache<>(Duration.ofMinutes(1), 1000);
+        int threads = 8;
+
+        CountDownLatch done = new CountDownLatch(threads);
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int t = 0; t < threads; ++t) {
+                int thread = t;
+                executor.execute(() -> {
+                    for (int i = 0; i < 20_000; ++i) {
+                        cache.put(thread * 20_000 + i, i);
+                        cache.get(thread * 20_000 + i / 2);
+                    }
+                    done.countDown();
+                });
+            }
+            assertTrue(done.await(1, TimeUnit.MINUTES));
+        }
+
+        // Puts racing a sweep may overshoot the bound until the next one
+        assertTrue(cache.size() <= 1000 + threads, () -> "size " + cache.size());
+    }
+}